@@ -0,0 +1,36 @@
+package com.example.procurement;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Записанные ответы torgi.gov.ru из ресурсов fixtures/.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static byte[] read(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Fixture not found: " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Procurement procurement(String lotcard, String number) {
+        Procurement procurement = new Procurement();
+        procurement.setNumber(number);
+        try {
+            new LotPageParser().apply(new LotCardReader().read(read(lotcard)), procurement);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return procurement;
+    }
+}
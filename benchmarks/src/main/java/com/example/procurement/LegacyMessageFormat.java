@@ -0,0 +1,103 @@
+package com.example.procurement;
+
+import java.text.DecimalFormat;
+
+/**
+ * Прежняя сборка карточки лота — база для сравнения в {@link MessageFormattingBenchmark}:
+ * выбор вида лота через toLowerCase().contains, общий DecimalFormat и экранирование цепочкой из 18 replace.
+ */
+final class LegacyMessageFormat {
+    private static final DecimalFormat DECIMAL_FORMAT = new DecimalFormat("#,##0.00");
+
+    private LegacyMessageFormat() {
+    }
+
+    static String build(Procurement procurement) {
+        // --- Выбор заголовка и подписи к цене ---
+        String lotType = "";
+        String priceLabel = "";
+        if (procurement.getBiddTypeName() != null && procurement.getBiddTypeName().toLowerCase().contains("реализация имущества должников")) {
+            lotType = "Реализация имущества должников";
+            priceLabel = "Цена за договор";
+        } else if (procurement.getContractTypeName() != null && procurement.getContractTypeName().toLowerCase().contains("купли-продажи")) {
+            lotType = "Аукцион на право заключения договора купли-продажи недвижимого имущества";
+            priceLabel = "Цена за договор";
+        } else if (procurement.getContractTypeName() != null && procurement.getContractTypeName().toLowerCase().contains("аренды")) {
+            lotType = "Аукцион на право заключения договора аренды на недвижимое имущество";
+            if (procurement.getPricePeriod() != null && procurement.getPricePeriod().contains("год")) {
+                priceLabel = "Аренда за год";
+            } else if (procurement.getPricePeriod() != null && procurement.getPricePeriod().contains("месяц")) {
+                priceLabel = "Аренда в месяц";
+            } else {
+                priceLabel = "Аренда";
+            }
+        } else {
+            lotType = "Аукцион на право заключения договора аренды на недвижимое имущество";
+            priceLabel = "Аренда";
+        }
+        // --- Формируем текст сообщения ---
+        StringBuilder message = new StringBuilder();
+        // Заголовок всегда жирным (двойное подчёркивание, как для даты)
+        String escapedLotType = "__" + escapeMarkdownV2(lotType) + "__";
+        message.append(escapedLotType).append("\n\n");
+        String escapedTitle = escapeMarkdownV2(procurement.getTitle());
+        message.append(escapedTitle).append("\n\n");
+        if (procurement.getPrice() != null) {
+            String formattedPrice = DECIMAL_FORMAT.format(procurement.getPrice()).replace(".", "\\.");
+            message.append("💰").append(priceLabel).append(": ").append(formattedPrice).append(" ₽\n");
+        }
+        if (procurement.getMonthlyPrice() != null && priceLabel.contains("год")) {
+            String formattedMonthlyPrice = DECIMAL_FORMAT.format(procurement.getMonthlyPrice()).replace(".", "\\.");
+            message.append("💰Аренда в мес: ").append(formattedMonthlyPrice).append(" ₽\n");
+        }
+        if (procurement.getDeposit() != null) {
+            String formattedDeposit = DECIMAL_FORMAT.format(procurement.getDeposit()).replace(".", "\\.");
+            message.append("💰Задаток: ").append(formattedDeposit).append(" ₽\n");
+        }
+        // --- Организатор торгов ---
+        boolean isDebtor = procurement.getBiddTypeName() != null && procurement.getBiddTypeName().toLowerCase().contains("реализация имущества должников");
+        if (!isDebtor && procurement.getDepositRecipientName() != null && !procurement.getDepositRecipientName().isEmpty()) {
+            String shortOrg = TelegramBot.getShortOrgNameFull(procurement.getDepositRecipientName());
+            message.append("🏛Организатор торгов: ").append(escapeMarkdownV2(shortOrg)).append("\n");
+        }
+        // --- Статичный адрес ---
+        message.append("🧭г Севастополь\n");
+        if (procurement.getContractTerm() != null) {
+            String escapedContractTerm = escapeMarkdownV2(procurement.getContractTerm());
+            message.append("📅Срок договора (лет): ").append(escapedContractTerm).append("\n");
+        }
+        if (procurement.getDeadline() != null) {
+            String formattedDeadline = procurement.getDeadline();
+            try {
+                java.time.OffsetDateTime odt = java.time.OffsetDateTime.parse(procurement.getDeadline());
+                formattedDeadline = odt.format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy"));
+            } catch (Exception ignore) {}
+            String escapedDeadline = escapeMarkdownV2(formattedDeadline);
+            message.append("⏰Подача до: __").append(escapedDeadline).append("__\n\n");
+        }
+        message.append("Заинтересовал лот? [Пиши](https://t.me/").append("SevNTO_bot").append("?start=lot_").append(procurement.getNumber()).append(") или звони 88007078692");
+        return message.toString();
+    }
+
+    static String escapeMarkdownV2(String text) {
+        if (text == null) return "";
+        return text.replace("_", "\\_")
+                .replace("*", "\\*")
+                .replace("[", "\\[")
+                .replace("]", "\\]")
+                .replace("(", "\\(")
+                .replace(")", "\\)")
+                .replace("~", "\\~")
+                .replace("`", "\\`")
+                .replace(">", "\\>")
+                .replace("#", "\\#")
+                .replace("+", "\\+")
+                .replace("-", "\\-")
+                .replace("=", "\\=")
+                .replace("|", "\\|")
+                .replace("{", "\\{")
+                .replace("}", "\\}")
+                .replace(".", "\\.")
+                .replace("!", "\\!");
+    }
+}
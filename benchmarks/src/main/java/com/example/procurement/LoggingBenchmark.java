@@ -0,0 +1,101 @@
+package com.example.procurement;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.core.joran.spi.JoranException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Цена логирования при обработке лота: разбор ленты и перенос карточки в лот вместе с логами.
+ * before — прежние логи (заголовок и решение фильтра по каждой записи, 8 строк INFO на карточку)
+ * и прежняя настройка: синхронная текстовая запись в консоль и файл.
+ * after-* — текущий код (подробности в DEBUG) и настройка как в logback.xml: асинхронная запись текстом и в JSON.
+ * after-debug — DEBUG включён, пишется каждое событие; after-sampled — DEBUG включён и прореживается {@link LogSampler};
+ * after-info — уровень по умолчанию, подробности не пишутся вовсе.
+ * Консоль в замерах заменена вторым файлом; логи пишутся во временный каталог.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+    private static final Logger rssLogger = LoggerFactory.getLogger(RssParser.class);
+    private static final Logger lotLogger = LoggerFactory.getLogger(LotPageParser.class);
+
+    @Param({"before", "after-debug", "after-sampled", "after-info"})
+    public String logging;
+
+    private final LotPageParser parser = new LotPageParser();
+    private LotCard card;
+    private String title;
+    private boolean legacy;
+    private Path logDir;
+
+    @Setup
+    public void setUp() throws IOException, JoranException {
+        card = new LotCardReader().read(Fixtures.read("lotcard-rent.json"));
+        title = "Аукцион на право заключения договора аренды: нежилое помещение площадью 54,3 кв.м по адресу: г. Севастополь, ул. Ленина, д. 1";
+        legacy = "before".equals(logging);
+        logDir = Files.createTempDirectory("bench-logs");
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+        context.putProperty("benchLogDir", logDir.toString());
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(context);
+        configurator.doConfigure(LoggingBenchmark.class.getResource("/logging/logback-" + logging + ".xml"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+        try (Stream<Path> files = Files.walk(logDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Procurement processLot() {
+        Procurement procurement = new Procurement();
+        procurement.setNumber("21000012340000000123_1");
+        if (legacy) {
+            rssLogger.info("RSS lot: {}", title);
+            rssLogger.info("FILTER: INCLUDE ('{}') -> {}", "real-estate", title);
+        } else {
+            rssLogger.debug("RSS lot: {}", title);
+            rssLogger.debug("FILTER: INCLUDE ('{}') -> {}", "real-estate", title);
+        }
+        parser.apply(card, procurement);
+        if (legacy) {
+            lotLogger.info("Enriched procurement from XHR JSON: {} ({} images)", procurement.getNumber(), procurement.getImageUrls().size());
+            lotLogger.info("lotImages: {}", card.getImageFileIds());
+            lotLogger.info("title: {}", procurement.getTitle());
+            lotLogger.info("address: {}", procurement.getAddress());
+            lotLogger.info("price: {}", procurement.getPrice());
+            lotLogger.info("area: {}", procurement.getArea());
+            lotLogger.info("deadline: {}", procurement.getDeadline());
+        }
+        return procurement;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.procurement;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор ответа lotcards и перенос полей в лот.
+ * treeBaseline повторяет прежний путь: строка целиком, новый ObjectMapper и дерево JsonNode на каждый лот.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+@State(Scope.Benchmark)
+public class LotCardBenchmark {
+    @Param({"lotcard-rent.json", "lotcard-sale.json"})
+    public String fixture;
+
+    private final LotCardReader reader = new LotCardReader();
+    private final LotPageParser parser = new LotPageParser();
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        json = Fixtures.read(fixture);
+    }
+
+    @Benchmark
+    public LotCard readCard() throws IOException {
+        return reader.read(new ByteArrayInputStream(json));
+    }
+
+    @Benchmark
+    public Procurement readAndApply() throws IOException {
+        Procurement procurement = new Procurement();
+        procurement.setNumber("21000012340000000123_1");
+        parser.apply(reader.read(new ByteArrayInputStream(json)), procurement);
+        return procurement;
+    }
+
+    @Benchmark
+    public JsonNode treeBaseline() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(json)));
+        StringBuilder response = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null) {
+            response.append(line);
+        }
+        return new ObjectMapper().readTree(response.toString());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.procurement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подготовка текста карточки для Telegram: экранирование MarkdownV2, сокращение организатора и сообщение целиком.
+ * buildMessage собирает карточку по шаблону по умолчанию (message-template.txt), *Baseline — прежним кодом
+ * из {@link LegacyMessageFormat}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class MessageFormattingBenchmark {
+    private static final String[] ORGANIZERS = {
+            "Департамент по имущественным и земельным отношениям города Севастополя",
+            "Государственное унитарное предприятие города Севастополя \"СЕВТЕПЛОЭНЕРГО\" (ГУП \"СЕВТЕПЛОЭНЕРГО\")",
+            "МУП \"ЖИЛКОМСЕРВИС\" Балаклавского муниципального округа",
+            "ДИЗО Севастополя"
+    };
+
+    @State(Scope.Benchmark)
+    public static class Lot {
+        @Param({"lotcard-rent.json", "lotcard-sale.json"})
+        public String fixture;
+
+        Procurement procurement;
+        MessageTemplate template;
+
+        @Setup
+        public void setUp() throws IOException {
+            procurement = Fixtures.procurement(fixture, "21000012340000000123_1");
+            template = MessageTemplate.compile(MessageTemplate.defaultText());
+        }
+    }
+
+    @Benchmark
+    public String escapeTitle(Lot lot) {
+        return TelegramBot.escapeMarkdownV2(lot.procurement.getTitle());
+    }
+
+    @Benchmark
+    public String escapeTitleBaseline(Lot lot) {
+        return LegacyMessageFormat.escapeMarkdownV2(lot.procurement.getTitle());
+    }
+
+    @Benchmark
+    public void shortOrgNames(Blackhole bh) {
+        for (String organizer : ORGANIZERS) {
+            bh.consume(TelegramBot.getShortOrgNameFull(organizer));
+        }
+    }
+
+    @Benchmark
+    public String buildMessage(Lot lot) {
+        return lot.template.render(lot.procurement);
+    }
+
+    @Benchmark
+    public String buildMessageBaseline(Lot lot) {
+        return LegacyMessageFormat.build(lot.procurement);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.procurement;
+
+import com.rometools.rome.feed.synd.SyndEntry;
+import com.rometools.rome.io.SyndFeedInput;
+import com.rometools.rome.io.XmlReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор страницы RSS, фильтр и извлечение полей лота из заголовка и описания.
+ * Одна операция — вся страница из fixtures/rss-page.xml.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+@State(Scope.Benchmark)
+public class RssParserBenchmark {
+    private final RssParser parser = new RssParser();
+    private LotFilter filter;
+    private byte[] page;
+    private String[] titles;
+    private String[] descriptions;
+    private String[] links;
+
+    @Setup
+    public void setUp() throws Exception {
+        page = Fixtures.read("rss-page.xml");
+        filter = LotFilter.compile(LotFilter.defaultRules(), new ConcurrentHashMap<>());
+        List<SyndEntry> entries = parseFeed();
+        titles = new String[entries.size()];
+        descriptions = new String[entries.size()];
+        links = new String[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            titles[i] = entries.get(i).getTitle();
+            descriptions[i] = entries.get(i).getDescription().getValue();
+            links[i] = entries.get(i).getLink();
+        }
+    }
+
+    @Benchmark
+    public List<SyndEntry> parseFeed() throws Exception {
+        return new SyndFeedInput().build(new XmlReader(new ByteArrayInputStream(page))).getEntries();
+    }
+
+    @Benchmark
+    public void extractFields(Blackhole bh) {
+        for (int i = 0; i < titles.length; i++) {
+            bh.consume(parser.extractNumberFromLink(links[i]));
+            bh.consume(filter.check(titles[i], parser.extractPrice(descriptions[i])));
+        }
+    }
+}
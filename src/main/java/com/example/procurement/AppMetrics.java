@@ -0,0 +1,104 @@
+package com.example.procurement;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ClassLoaderMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.core.instrument.binder.system.UptimeMetrics;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.jmx.JmxConfig;
+import io.micrometer.jmx.JmxMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Общий реестр метрик Micrometer. Метрики публикуются в формате Prometheus на http://metrics.host:metrics.port/metrics
+ * и через JMX (домен metrics), если metrics.jmx=true.
+ * Таймеры собирают гистограммы, поэтому по ним можно строить перцентили и алерты на замедление torgi и Telegram.
+ */
+public class AppMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(AppMetrics.class);
+    private static final PrometheusMeterRegistry PROMETHEUS = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    private static final CompositeMeterRegistry REGISTRY = createRegistry();
+    private static HttpServer server;
+
+    private AppMetrics() {
+    }
+
+    public static MeterRegistry registry() {
+        return REGISTRY;
+    }
+
+    /**
+     * Таймер с гистограммой для перцентилей.
+     *
+     * @param tags пары имя-значение
+     */
+    public static Timer timer(String name, String... tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(REGISTRY);
+    }
+
+    /**
+     * Таймер запроса к SQLite; query — имя метода {@link DatabaseManager}.
+     */
+    public static Timer dbQuery(String query) {
+        return timer("db.queries", "query", query);
+    }
+
+    /**
+     * Запускает HTTP-сервер /metrics, если metrics.enabled=true. Повторный вызов ничего не делает.
+     */
+    public static synchronized void startServer() {
+        if (server != null || !Config.getMetricsEnabled()) {
+            return;
+        }
+        try {
+            HttpServer httpServer = HttpServer.create(new InetSocketAddress(Config.getMetricsHost(), Config.getMetricsPort()), 0);
+            httpServer.createContext("/metrics", exchange -> {
+                byte[] body = PROMETHEUS.scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            // Однопоточный исполнитель по умолчанию: запросы Prometheus редкие
+            httpServer.start();
+            server = httpServer;
+            logger.info("Metrics endpoint started on http://{}:{}/metrics", Config.getMetricsHost(), Config.getMetricsPort());
+        } catch (IOException e) {
+            logger.error("Error starting metrics endpoint: {}", e.getMessage(), e);
+        }
+    }
+
+    private static CompositeMeterRegistry createRegistry() {
+        CompositeMeterRegistry registry = new CompositeMeterRegistry();
+        registry.config().commonTags("application", "procurement-bot");
+        registry.add(PROMETHEUS);
+        if (Config.getMetricsJmx()) {
+            registry.add(new JmxMeterRegistry(JmxConfig.DEFAULT, Clock.SYSTEM));
+        }
+        new ClassLoaderMetrics().bindTo(registry);
+        new JvmMemoryMetrics().bindTo(registry);
+        new JvmGcMetrics().bindTo(registry);
+        new JvmThreadMetrics().bindTo(registry);
+        new ProcessorMetrics().bindTo(registry);
+        new UptimeMetrics().bindTo(registry);
+        return registry;
+    }
+}
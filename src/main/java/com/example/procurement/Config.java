@@ -6,6 +6,10 @@ import org.slf4j.LoggerFactory;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.Properties;
 
 public class Config {
@@ -56,4 +60,187 @@ public class Config {
     public static boolean getParserVerbose() {
         return Boolean.parseBoolean(properties.getProperty("parser.verbose", "false"));
     }
-}
\ No newline at end of file
+
+    public static int getEnrichConcurrency() {
+        return getInt("parser.enrichConcurrency", 8);
+    }
+
+    public static double getHostRatePerSecond(String host) {
+        return getRate("http.rate." + host, getRate("http.ratePerSecond", 5.0));
+    }
+
+    public static int getHostBurst(String host) {
+        return getInt("http.burst." + host, getInt("http.burst", 5));
+    }
+
+    public static int getHttpConnectTimeoutMs() {
+        return getInt("http.connectTimeoutMs", 5000);
+    }
+
+    public static int getHttpReadTimeoutMs() {
+        return getInt("http.readTimeoutMs", 15000);
+    }
+
+    public static int getParserMaxLots() {
+        return getInt("parser.maxLots", 20);
+    }
+
+    public static int getParserMaxPages() {
+        return getInt("parser.maxPages", 10);
+    }
+
+    public static int getDbBusyTimeoutMs() {
+        return getInt("db.busyTimeoutMs", 5000);
+    }
+
+    public static int getDbBloomExpectedLots() {
+        return getInt("db.bloomExpectedLots", 1_000_000);
+    }
+
+    public static double getTelegramGlobalRatePerSecond() {
+        return getRate("telegram.globalRatePerSecond", 25.0);
+    }
+
+    public static double getTelegramChatRatePerSecond() {
+        return getRate("telegram.chatRatePerSecond", 1.0);
+    }
+
+    public static int getTelegramMaxAttempts() {
+        return getInt("telegram.maxAttempts", 5);
+    }
+
+    public static String getImageCacheDir() {
+        return properties.getProperty("images.cacheDir", "cache/images");
+    }
+
+    public static int getImageCacheMaxMb() {
+        return getInt("images.cacheMaxMb", 200);
+    }
+
+    public static boolean getImagePrefetch() {
+        return Boolean.parseBoolean(properties.getProperty("images.prefetch", "true"));
+    }
+
+    public static int getBotWorkers() {
+        return getInt("bot.workers", 4);
+    }
+
+    public static int getBotQueueSize() {
+        return getInt("bot.queueSize", 100);
+    }
+
+    public static int getBotMappingCacheSize() {
+        return getInt("bot.mappingCacheSize", 20000);
+    }
+
+    public static String getFilterRulesFile() {
+        return properties.getProperty("filter.rulesFile", "rules/filter-rules.json");
+    }
+
+    public static String getMessageTemplateFile() {
+        return properties.getProperty("message.templateFile", "templates/procurement.txt");
+    }
+
+    public static boolean getMetricsEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("metrics.enabled", "true"));
+    }
+
+    public static String getMetricsHost() {
+        return properties.getProperty("metrics.host", "127.0.0.1");
+    }
+
+    public static int getMetricsPort() {
+        return getInt("metrics.port", 9091);
+    }
+
+    public static boolean getMetricsJmx() {
+        return Boolean.parseBoolean(properties.getProperty("metrics.jmx", "true"));
+    }
+
+    public static boolean getPollAdaptive() {
+        return !"cron".equalsIgnoreCase(properties.getProperty("poll.mode", "adaptive").trim());
+    }
+
+    public static String getPollCron() {
+        return properties.getProperty("poll.cron", "0 0 10,18 * * ?");
+    }
+
+    public static int getPollMinMinutes() {
+        return getInt("poll.minMinutes", 3);
+    }
+
+    public static int getPollMaxMinutes() {
+        return getInt("poll.maxMinutes", 30);
+    }
+
+    public static int getPollOffHoursMinutes() {
+        return getInt("poll.offHoursMinutes", 120);
+    }
+
+    public static LocalTime getPollWorkStart() {
+        return getTime("poll.workStart", LocalTime.of(8, 0));
+    }
+
+    public static LocalTime getPollWorkEnd() {
+        return getTime("poll.workEnd", LocalTime.of(20, 0));
+    }
+
+    public static ZoneId getPollTimezone() {
+        String value = properties.getProperty("poll.timezone", "Europe/Moscow");
+        try {
+            return ZoneId.of(value.trim());
+        } catch (DateTimeException e) {
+            logger.warn("Invalid value for poll.timezone: {}, using Europe/Moscow", value);
+            return ZoneId.of("Europe/Moscow");
+        }
+    }
+
+    private static LocalTime getTime(String key, LocalTime defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return LocalTime.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            logger.warn("Invalid value for {}: {}, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value for {}: {}, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private static double getDouble(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value for {}: {}, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    // Частота для TokenBucket: ноль, отрицательное или бесконечное значение остановило бы запросы навсегда
+    private static double getRate(String key, double defaultValue) {
+        double value = getDouble(key, defaultValue);
+        if (!(value > 0) || Double.isInfinite(value)) {
+            logger.warn("Invalid value for {}: {}, must be a positive number, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+        return value;
+    }
+}
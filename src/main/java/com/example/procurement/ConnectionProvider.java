@@ -0,0 +1,288 @@
+package com.example.procurement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Долгоживущие соединения с SQLite: по одному на поток, с кэшем подготовленных запросов.
+ * База работает в режиме WAL, поэтому чтение из потока бота не ждёт записи из задачи Quartz.
+ * Схема создаётся один раз при первом обращении.
+ */
+public class ConnectionProvider {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionProvider.class);
+    private static final String DB_FILE = "data/procurements.db";
+    private static final String DB_URL = "jdbc:sqlite:" + DB_FILE;
+    private static final ConnectionProvider INSTANCE = new ConnectionProvider();
+
+    private final SQLiteConfig sqliteConfig;
+    private final ThreadLocal<ThreadConnection> connections = new ThreadLocal<>();
+    private final List<ThreadConnection> openConnections = new CopyOnWriteArrayList<>();
+    private final List<Runnable> beforeClose = new CopyOnWriteArrayList<>();
+
+    private ConnectionProvider() {
+        sqliteConfig = new SQLiteConfig();
+        sqliteConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        sqliteConfig.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        sqliteConfig.setBusyTimeout(Config.getDbBusyTimeoutMs());
+        File parent = new File(DB_FILE).getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            logger.warn("Could not create database directory {}", parent);
+        }
+        initializeSchema();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::closeAll, "db-close"));
+    }
+
+    public static ConnectionProvider getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Соединение текущего потока. Закрывать его не нужно.
+     */
+    public Connection connection() throws SQLException {
+        ThreadConnection tc = connections.get();
+        if (tc == null || tc.connection.isClosed()) {
+            releaseDeadThreads();
+            tc = new ThreadConnection(Thread.currentThread(), sqliteConfig.createConnection(DB_URL));
+            connections.set(tc);
+            openConnections.add(tc);
+            logger.debug("Opened database connection for thread {}", Thread.currentThread().getName());
+        }
+        return tc.connection;
+    }
+
+    /**
+     * Действие при остановке процесса, которое должно успеть записать в базу до закрытия соединений.
+     * Shutdown-хуки JVM выполняются в произвольном порядке, поэтому такие действия выполняет сам хук db-close.
+     */
+    public void beforeClose(Runnable action) {
+        beforeClose.add(action);
+    }
+
+    /**
+     * Закрывает соединение текущего потока, если оно открыто. Для потоков, которые живут один проход,
+     * чтобы их соединения не ждали закрытия до следующего открытия соединения другим потоком.
+     */
+    public void closeThreadConnection() {
+        ThreadConnection tc = connections.get();
+        if (tc != null) {
+            connections.remove();
+            openConnections.remove(tc);
+            tc.close();
+            logger.debug("Closed database connection for thread {}", Thread.currentThread().getName());
+        }
+    }
+
+    /**
+     * Оборачивает тело короткоживущего потока: по его завершении соединение потока закрывается.
+     */
+    public static Runnable closingConnection(Runnable body) {
+        return () -> {
+            try {
+                body.run();
+            } finally {
+                INSTANCE.closeThreadConnection();
+            }
+        };
+    }
+
+    /**
+     * Подготовленный запрос из кэша текущего потока. Закрывать его не нужно, только ResultSet.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        Connection conn = connection();
+        ThreadConnection tc = connections.get();
+        PreparedStatement stmt = tc.statements.get(sql);
+        if (stmt == null || stmt.isClosed()) {
+            stmt = conn.prepareStatement(sql);
+            tc.statements.put(sql, stmt);
+        }
+        stmt.clearParameters();
+        return stmt;
+    }
+
+    /**
+     * Выполняет действие в одной транзакции на соединении текущего потока.
+     */
+    public <T> T inTransaction(SqlWork<T> work) throws SQLException {
+        Connection conn = connection();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            T result = work.execute(conn);
+            conn.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void initializeSchema() {
+        try (Connection conn = sqliteConfig.createConnection(DB_URL); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS procurements (" +
+                    "number TEXT PRIMARY KEY, " +
+                    "title TEXT, " +
+                    "link TEXT, " +
+                    "lotType TEXT, " +
+                    "address TEXT, " +
+                    "price REAL, " +
+                    "monthlyPrice REAL, " +
+                    "deposit REAL, " +
+                    "contractTerm TEXT, " +
+                    "deadline TEXT, " +
+                    "cadastralNumber TEXT, " +
+                    "area REAL, " +
+                    "isSent INTEGER DEFAULT 0)");
+            addColumnIfMissing(conn, "procurements", "biddTypeName", "TEXT");
+            addColumnIfMissing(conn, "procurements", "contractTypeName", "TEXT");
+            addColumnIfMissing(conn, "procurements", "pricePeriod", "TEXT");
+            addColumnIfMissing(conn, "procurements", "depositRecipientName", "TEXT");
+            addColumnIfMissing(conn, "procurements", "imageUrls", "TEXT");
+            stmt.execute("CREATE TABLE IF NOT EXISTS message_mappings (" +
+                    "procurementNumber TEXT, " +
+                    "messageId INTEGER, " +
+                    "chatId INTEGER, " +
+                    "PRIMARY KEY (procurementNumber, messageId, chatId))");
+            // Ответы и пересылки ищут лот по сообщению: первичный ключ начинается с номера лота и здесь не помогает
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_message_mappings_message ON message_mappings (chatId, messageId)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS telegram_files (" +
+                    "imageKey TEXT PRIMARY KEY, " +
+                    "fileId TEXT NOT NULL, " +
+                    "updatedAt INTEGER NOT NULL)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS outbox (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "chatId INTEGER NOT NULL, " +
+                    "procurementNumber TEXT NOT NULL, " +
+                    "status TEXT NOT NULL DEFAULT 'PENDING', " +
+                    "attempts INTEGER NOT NULL DEFAULT 0, " +
+                    "nextAttemptAt INTEGER NOT NULL, " +
+                    "createdAt INTEGER NOT NULL, " +
+                    "lastError TEXT, " +
+                    "UNIQUE (chatId, procurementNumber))");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_outbox_due ON outbox (status, nextAttemptAt)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS unmatched_lots (" +
+                    "number TEXT PRIMARY KEY, " +
+                    "title TEXT, " +
+                    "link TEXT, " +
+                    "seenAt INTEGER NOT NULL)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS http_cache (" +
+                    "url TEXT PRIMARY KEY, " +
+                    "etag TEXT, " +
+                    "lastModified TEXT, " +
+                    "updatedAt INTEGER NOT NULL)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS poll_state (" +
+                    "name TEXT PRIMARY KEY, " +
+                    "value TEXT, " +
+                    "updatedAt INTEGER NOT NULL)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS runs (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "trigger TEXT NOT NULL, " +
+                    "status TEXT NOT NULL, " +
+                    "startedAt INTEGER NOT NULL, " +
+                    "finishedAt INTEGER, " +
+                    "found INTEGER, " +
+                    "queued INTEGER, " +
+                    "unmatched INTEGER, " +
+                    "stages TEXT, " +
+                    "error TEXT)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS subscribers (" +
+                    "chatId INTEGER PRIMARY KEY, " +
+                    "active INTEGER NOT NULL DEFAULT 1, " +
+                    "createdAt INTEGER NOT NULL)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS subscription_rules (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "chatId INTEGER NOT NULL REFERENCES subscribers (chatId), " +
+                    "category TEXT, " +
+                    "priceMin REAL, " +
+                    "priceMax REAL, " +
+                    "keywords TEXT, " +
+                    "createdAt INTEGER NOT NULL)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_subscription_rules_chat ON subscription_rules (chatId)");
+            logger.info("Database tables initialized (journal_mode=WAL, synchronous=NORMAL)");
+        } catch (SQLException e) {
+            logger.error("Error initializing database: {}", e.getMessage(), e);
+        }
+    }
+
+    private void addColumnIfMissing(Connection conn, String table, String column, String type) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return;
+                }
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+            logger.info("Added column {}.{}", table, column);
+        }
+    }
+
+    // Соединения потоков, которые уже завершились, иначе остались бы открытыми навсегда
+    private void releaseDeadThreads() {
+        Iterator<ThreadConnection> it = openConnections.iterator();
+        while (it.hasNext()) {
+            ThreadConnection tc = it.next();
+            if (!tc.owner.isAlive()) {
+                tc.close();
+                openConnections.remove(tc);
+            }
+        }
+    }
+
+    private void closeAll() {
+        for (Runnable action : beforeClose) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                logger.error("Shutdown action failed: {}", e.getMessage(), e);
+            }
+        }
+        for (ThreadConnection tc : openConnections) {
+            tc.close();
+        }
+        openConnections.clear();
+        logger.info("Database connections closed");
+    }
+
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T execute(Connection conn) throws SQLException;
+    }
+
+    private static class ThreadConnection {
+        private final Thread owner;
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        ThreadConnection(Thread owner, Connection connection) {
+            this.owner = owner;
+            this.connection = connection;
+        }
+
+        void close() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.warn("Error closing database connection: {}", e.getMessage());
+            }
+        }
+    }
+}
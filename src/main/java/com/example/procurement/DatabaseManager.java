@@ -1,142 +1,803 @@
 package com.example.procurement;
 
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class DatabaseManager {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseManager.class);
-    private static final String DB_URL = "jdbc:sqlite:data/procurements.db";
+
+    // SQLite ограничивает число параметров запроса (999 в старых сборках)
+    private static final int IN_CHUNK_SIZE = 512;
+    private static final String UPSERT_PROCUREMENT =
+            "INSERT INTO procurements (number, title, link, lotType, address, price, monthlyPrice, deposit, contractTerm, deadline, " +
+                    "cadastralNumber, area, biddTypeName, contractTypeName, pricePeriod, depositRecipientName, imageUrls) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT(number) DO UPDATE SET " +
+                    "title = COALESCE(excluded.title, title), " +
+                    "link = COALESCE(excluded.link, link), " +
+                    "lotType = COALESCE(excluded.lotType, lotType), " +
+                    "address = COALESCE(excluded.address, address), " +
+                    "price = COALESCE(excluded.price, price), " +
+                    "monthlyPrice = COALESCE(excluded.monthlyPrice, monthlyPrice), " +
+                    "deposit = COALESCE(excluded.deposit, deposit), " +
+                    "contractTerm = COALESCE(excluded.contractTerm, contractTerm), " +
+                    "deadline = COALESCE(excluded.deadline, deadline), " +
+                    "cadastralNumber = COALESCE(excluded.cadastralNumber, cadastralNumber), " +
+                    "area = COALESCE(excluded.area, area), " +
+                    "biddTypeName = COALESCE(excluded.biddTypeName, biddTypeName), " +
+                    "contractTypeName = COALESCE(excluded.contractTypeName, contractTypeName), " +
+                    "pricePeriod = COALESCE(excluded.pricePeriod, pricePeriod), " +
+                    "depositRecipientName = COALESCE(excluded.depositRecipientName, depositRecipientName), " +
+                    "imageUrls = COALESCE(excluded.imageUrls, imageUrls)";
+    private static volatile BloomFilter knownLots;
+
+    private final ConnectionProvider provider;
 
     public DatabaseManager() {
-        initializeDatabase();
-    }
-
-    private void initializeDatabase() {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            Statement stmt = conn.createStatement();
-            stmt.execute("CREATE TABLE IF NOT EXISTS procurements (" +
-                    "number TEXT PRIMARY KEY, " +
-                    "title TEXT, " +
-                    "link TEXT, " +
-                    "lotType TEXT, " +
-                    "address TEXT, " +
-                    "price REAL, " +
-                    "monthlyPrice REAL, " +
-                    "deposit REAL, " +
-                    "contractTerm TEXT, " +
-                    "deadline TEXT, " +
-                    "cadastralNumber TEXT, " +
-                    "area REAL, " +
-                    "isSent INTEGER DEFAULT 0)");
-            stmt.execute("CREATE TABLE IF NOT EXISTS message_mappings (" +
-                    "procurementNumber TEXT, " +
-                    "messageId INTEGER, " +
-                    "chatId INTEGER, " +
-                    "PRIMARY KEY (procurementNumber, messageId, chatId))");
-            logger.info("Database tables initialized");
-        } catch (SQLException e) {
-            logger.error("Error initializing database: {}", e.getMessage(), e);
-        }
+        this.provider = ConnectionProvider.getInstance();
     }
 
+    /**
+     * Возвращает лоты, которых нет в базе или которые ещё не отправлены.
+     * Лоты, которых точно нет по фильтру Блума, проходят без запроса,
+     * остальные проверяются пачками через WHERE number IN (...).
+     */
     public List<Procurement> getNewProcurements(List<Procurement> procurements) {
-        List<Procurement> newProcurements = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            PreparedStatement stmt = conn.prepareStatement("SELECT isSent FROM procurements WHERE number = ?");
+        Timer.Sample sample = Timer.start();
+        try {
+            List<Procurement> newProcurements = new ArrayList<>();
+            BloomFilter known = knownLots();
+            List<String> candidates = new ArrayList<>();
             for (Procurement p : procurements) {
-                stmt.setString(1, p.getNumber());
-                ResultSet rs = stmt.executeQuery();
-                if (!rs.next() || rs.getInt("isSent") == 0) {
-                    newProcurements.add(p);
-                    logger.debug("Found new or unsent procurement: {}", p.getNumber());
+                if (known != null && !known.mightContain(p.getNumber())) {
+                    continue;
                 }
+                candidates.add(p.getNumber());
             }
-            logger.info("Found {} new or unsent procurements", newProcurements.size());
-        } catch (SQLException e) {
-            logger.error("Error checking new procurements: {}", e.getMessage(), e);
+            try {
+                Set<String> sent = findSent(candidates);
+                for (Procurement p : procurements) {
+                    if (!sent.contains(p.getNumber())) {
+                        newProcurements.add(p);
+                        logger.debug("Found new or unsent procurement: {}", p.getNumber());
+                    }
+                }
+                logger.info("Found {} new or unsent procurements ({} checked in database)", newProcurements.size(), candidates.size());
+            } catch (SQLException e) {
+                logger.error("Error checking new procurements: {}", e.getMessage(), e);
+            }
+            return newProcurements;
+        } finally {
+            sample.stop(AppMetrics.dbQuery("getNewProcurements"));
+        }
+    }
+
+    private Set<String> findSent(List<String> numbers) throws SQLException {
+        Set<String> sent = new HashSet<>();
+        for (int from = 0; from < numbers.size(); from += IN_CHUNK_SIZE) {
+            List<String> chunk = numbers.subList(from, Math.min(numbers.size(), from + IN_CHUNK_SIZE));
+            // Число параметров округляется до степени двойки, чтобы в кэше было лишь несколько вариантов запроса
+            int params = Math.max(8, Integer.highestOneBit(chunk.size() - 1) << 1);
+            PreparedStatement stmt = provider.prepare("SELECT number FROM procurements WHERE isSent = 1 AND number IN ("
+                    + String.join(", ", Collections.nCopies(params, "?")) + ")");
+            for (int i = 0; i < params; i++) {
+                stmt.setString(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sent.add(rs.getString(1));
+                }
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * Есть ли лот в базе (независимо от того, отправлен ли он).
+     */
+    public boolean isKnown(String number) {
+        Timer.Sample sample = Timer.start();
+        try {
+            BloomFilter known = knownLots();
+            if (known != null && !known.mightContain(number)) {
+                return false;
+            }
+            try {
+                PreparedStatement stmt = provider.prepare("SELECT 1 FROM procurements WHERE number = ?");
+                stmt.setString(1, number);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next();
+                }
+            } catch (SQLException e) {
+                logger.error("Error checking procurement {}: {}", number, e.getMessage(), e);
+                return false;
+            }
+        } finally {
+            sample.stop(AppMetrics.dbQuery("isKnown"));
+        }
+    }
+
+    // Фильтр Блума по номерам всех сохранённых лотов, загружается один раз на процесс
+    private BloomFilter knownLots() {
+        BloomFilter filter = knownLots;
+        if (filter != null) {
+            return filter;
+        }
+        synchronized (DatabaseManager.class) {
+            if (knownLots == null) {
+                try {
+                    long count;
+                    try (ResultSet rs = provider.prepare("SELECT COUNT(*) FROM procurements").executeQuery()) {
+                        count = rs.next() ? rs.getLong(1) : 0;
+                    }
+                    filter = new BloomFilter(Math.max(Config.getDbBloomExpectedLots(), count * 2), 0.01);
+                    try (ResultSet rs = provider.prepare("SELECT number FROM procurements").executeQuery()) {
+                        while (rs.next()) {
+                            filter.add(rs.getString(1));
+                        }
+                    }
+                    knownLots = filter;
+                    logger.info("Loaded {} known procurement numbers into bloom filter", count);
+                } catch (SQLException e) {
+                    logger.error("Error loading known procurements: {}", e.getMessage(), e);
+                }
+            }
+            return knownLots;
         }
-        return newProcurements;
     }
 
+    /**
+     * Сохраняет лоты одной пачкой. Уже известные лоты обновляются без потери
+     * заполненных колонок и без сброса признака отправки.
+     */
     public void saveProcurements(List<Procurement> procurements) {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            conn.setAutoCommit(false);
-            PreparedStatement stmt = conn.prepareStatement(
-                    "INSERT OR REPLACE INTO procurements (number, title, link, lotType, address, price, monthlyPrice, deposit, contractTerm, deadline, cadastralNumber, area, isSent) " +
-                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
-            for (Procurement p : procurements) {
-                stmt.setString(1, p.getNumber());
-                stmt.setString(2, p.getTitle());
-                stmt.setString(3, p.getLink());
-                stmt.setString(4, p.getLotType());
-                stmt.setString(5, p.getAddress());
-                stmt.setObject(6, p.getPrice());
-                stmt.setObject(7, p.getMonthlyPrice());
-                stmt.setObject(8, p.getDeposit());
-                stmt.setString(9, p.getContractTerm());
-                stmt.setString(10, p.getDeadline());
-                stmt.setString(11, p.getCadastralNumber());
-                stmt.setObject(12, p.getArea());
-                stmt.setInt(13, 0); // isSent = 0
+        Timer.Sample sample = Timer.start();
+        try {
+            if (procurements.isEmpty()) {
+                return;
+            }
+            try {
+                provider.inTransaction(conn -> {
+                    PreparedStatement stmt = provider.prepare(UPSERT_PROCUREMENT);
+                    for (Procurement p : procurements) {
+                        stmt.setString(1, p.getNumber());
+                        stmt.setString(2, p.getTitle());
+                        stmt.setString(3, p.getLink());
+                        stmt.setString(4, p.getLotType());
+                        stmt.setString(5, p.getAddress());
+                        stmt.setObject(6, p.getPrice());
+                        stmt.setObject(7, p.getMonthlyPrice());
+                        stmt.setObject(8, p.getDeposit());
+                        stmt.setString(9, p.getContractTerm());
+                        stmt.setString(10, p.getDeadline());
+                        stmt.setString(11, p.getCadastralNumber());
+                        stmt.setObject(12, p.getArea());
+                        stmt.setString(13, p.getBiddTypeName());
+                        stmt.setString(14, p.getContractTypeName());
+                        stmt.setString(15, p.getPricePeriod());
+                        stmt.setString(16, p.getDepositRecipientName());
+                        stmt.setString(17, p.getImageUrls() == null || p.getImageUrls().isEmpty() ? null : String.join("\n", p.getImageUrls()));
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    return null;
+                });
+                BloomFilter known = knownLots();
+                if (known != null) {
+                    for (Procurement p : procurements) {
+                        known.add(p.getNumber());
+                    }
+                }
+                logger.info("Saved {} procurements to database", procurements.size());
+            } catch (SQLException e) {
+                logger.error("Error saving procurements: {}", e.getMessage(), e);
+            }
+        } finally {
+            sample.stop(AppMetrics.dbQuery("saveProcurements"));
+        }
+    }
+
+    /**
+     * Сохраняет соответствия отправленных сообщений лотам одной транзакцией.
+     */
+    public void saveMessageMappings(Collection<MessageMapping> mappings) {
+        if (mappings.isEmpty()) {
+            return;
+        }
+        Timer.Sample sample = Timer.start();
+        try {
+            provider.inTransaction(conn -> {
+                PreparedStatement stmt = provider.prepare(
+                        "INSERT OR IGNORE INTO message_mappings (procurementNumber, messageId, chatId) VALUES (?, ?, ?)");
+                for (MessageMapping mapping : mappings) {
+                    stmt.setString(1, mapping.getProcurementNumber());
+                    stmt.setInt(2, mapping.getMessageId());
+                    stmt.setLong(3, mapping.getChatId());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                return null;
+            });
+            logger.debug("Saved {} message mappings", mappings.size());
+        } catch (SQLException e) {
+            logger.error("Error saving message mappings: {}", e.getMessage(), e);
+        } finally {
+            sample.stop(AppMetrics.dbQuery("saveMessageMappings"));
+        }
+    }
+
+    public String getTelegramFileId(String imageKey) {
+        try {
+            PreparedStatement stmt = provider.prepare("SELECT fileId FROM telegram_files WHERE imageKey = ?");
+            stmt.setString(1, imageKey);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        } catch (SQLException e) {
+            logger.error("Error reading Telegram file id for {}: {}", imageKey, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    public void saveTelegramFileId(String imageKey, String fileId) {
+        try {
+            PreparedStatement stmt = provider.prepare(
+                    "INSERT INTO telegram_files (imageKey, fileId, updatedAt) VALUES (?, ?, ?) " +
+                            "ON CONFLICT(imageKey) DO UPDATE SET fileId = excluded.fileId, updatedAt = excluded.updatedAt");
+            stmt.setString(1, imageKey);
+            stmt.setString(2, fileId);
+            stmt.setLong(3, System.currentTimeMillis());
+            stmt.executeUpdate();
+            logger.debug("Saved Telegram file id for image {}", imageKey);
+        } catch (SQLException e) {
+            logger.error("Error saving Telegram file id for {}: {}", imageKey, e.getMessage(), e);
+        }
+    }
+
+    public HttpValidators getHttpValidators(String url) {
+        try {
+            PreparedStatement stmt = provider.prepare("SELECT etag, lastModified FROM http_cache WHERE url = ?");
+            stmt.setString(1, url);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new HttpValidators(url, rs.getString(1), rs.getString(2));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error loading HTTP validators for {}: {}", url, e.getMessage(), e);
+        }
+        return null;
+    }
+
+    public void saveHttpValidators(HttpValidators validators) {
+        try {
+            PreparedStatement stmt = provider.prepare(
+                    "INSERT INTO http_cache (url, etag, lastModified, updatedAt) VALUES (?, ?, ?, ?) " +
+                            "ON CONFLICT(url) DO UPDATE SET etag = excluded.etag, lastModified = excluded.lastModified, updatedAt = excluded.updatedAt");
+            stmt.setString(1, validators.getUrl());
+            stmt.setString(2, validators.getEtag());
+            stmt.setString(3, validators.getLastModified());
+            stmt.setLong(4, System.currentTimeMillis());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error saving HTTP validators for {}: {}", validators.getUrl(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Значение из таблицы poll_state (состояние опроса ленты между проходами) или null.
+     */
+    public String getPollState(String name) {
+        try {
+            PreparedStatement stmt = provider.prepare("SELECT value FROM poll_state WHERE name = ?");
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getString(1);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error loading poll state {}: {}", name, e.getMessage(), e);
+        }
+        return null;
+    }
+
+    public void savePollState(String name, String value) {
+        try {
+            PreparedStatement stmt = provider.prepare(
+                    "INSERT INTO poll_state (name, value, updatedAt) VALUES (?, ?, ?) " +
+                            "ON CONFLICT(name) DO UPDATE SET value = excluded.value, updatedAt = excluded.updatedAt");
+            stmt.setString(1, name);
+            stmt.setString(2, value);
+            stmt.setLong(3, System.currentTimeMillis());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error saving poll state {}: {}", name, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Правила подписки всех активных подписчиков.
+     */
+    public List<SubscriptionRule> getActiveSubscriptionRules() {
+        List<SubscriptionRule> rules = new ArrayList<>();
+        try (ResultSet rs = provider.prepare(
+                "SELECT r.id, r.chatId, r.category, r.priceMin, r.priceMax, r.keywords FROM subscription_rules r " +
+                        "JOIN subscribers s ON s.chatId = r.chatId WHERE s.active = 1 ORDER BY r.id").executeQuery()) {
+            while (rs.next()) {
+                rules.add(readSubscriptionRule(rs));
+            }
+        } catch (SQLException e) {
+            logger.error("Error loading subscription rules: {}", e.getMessage(), e);
+        }
+        return rules;
+    }
+
+    public List<SubscriptionRule> getSubscriptionRules(long chatId) {
+        List<SubscriptionRule> rules = new ArrayList<>();
+        try {
+            PreparedStatement stmt = provider.prepare(
+                    "SELECT id, chatId, category, priceMin, priceMax, keywords FROM subscription_rules WHERE chatId = ? ORDER BY id");
+            stmt.setLong(1, chatId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rules.add(readSubscriptionRule(rs));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error loading subscription rules for chat {}: {}", chatId, e.getMessage(), e);
+        }
+        return rules;
+    }
+
+    /**
+     * Добавляет правило подписки (и подписчика, если его ещё нет) и возвращает номер правила, или -1 при ошибке.
+     * Отписавшийся или заблокировавший бота подписчик снова становится активным.
+     */
+    public long addSubscriptionRule(SubscriptionRule rule) {
+        try {
+            return provider.inTransaction(conn -> {
+                long now = System.currentTimeMillis();
+                PreparedStatement subscriber = provider.prepare(
+                        "INSERT INTO subscribers (chatId, active, createdAt) VALUES (?, 1, ?) ON CONFLICT(chatId) DO UPDATE SET active = 1");
+                subscriber.setLong(1, rule.getChatId());
+                subscriber.setLong(2, now);
+                subscriber.executeUpdate();
+                PreparedStatement stmt = provider.prepare(
+                        "INSERT INTO subscription_rules (chatId, category, priceMin, priceMax, keywords, createdAt) VALUES (?, ?, ?, ?, ?, ?)");
+                stmt.setLong(1, rule.getChatId());
+                stmt.setString(2, rule.getCategory());
+                stmt.setObject(3, rule.getPriceMin());
+                stmt.setObject(4, rule.getPriceMax());
+                stmt.setString(5, rule.getKeywords().isEmpty() ? null : String.join("\n", rule.getKeywords()));
+                stmt.setLong(6, now);
                 stmt.executeUpdate();
-                logger.debug("Saved procurement: {}", p.getNumber());
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    return keys.next() ? keys.getLong(1) : -1L;
+                }
+            });
+        } catch (SQLException e) {
+            logger.error("Error saving subscription rule for chat {}: {}", rule.getChatId(), e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Удаляет правило чата, а при ruleId == null — все его правила. Возвращает число удалённых правил.
+     */
+    public int deleteSubscriptionRules(long chatId, Long ruleId) {
+        try {
+            PreparedStatement stmt = ruleId == null
+                    ? provider.prepare("DELETE FROM subscription_rules WHERE chatId = ?")
+                    : provider.prepare("DELETE FROM subscription_rules WHERE chatId = ? AND id = ?");
+            stmt.setLong(1, chatId);
+            if (ruleId != null) {
+                stmt.setLong(2, ruleId);
             }
-            conn.commit();
-            logger.info("Saved {} procurements to database", procurements.size());
+            return stmt.executeUpdate();
         } catch (SQLException e) {
-            logger.error("Error saving procurements: {}", e.getMessage(), e);
+            logger.error("Error deleting subscription rules for chat {}: {}", chatId, e.getMessage(), e);
+            return 0;
         }
     }
 
-    public void saveMessageId(String procurementNumber, int messageId, long chatId) {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            PreparedStatement stmt = conn.prepareStatement(
-                    "INSERT OR IGNORE INTO message_mappings (procurementNumber, messageId, chatId) VALUES (?, ?, ?)");
-            stmt.setString(1, procurementNumber);
-            stmt.setInt(2, messageId);
-            stmt.setLong(3, chatId);
+    /**
+     * Отключает подписчика, не удаляя правил: например, когда он заблокировал бота.
+     * Возвращает true, если подписчик был активен.
+     */
+    public boolean deactivateSubscriber(long chatId) {
+        try {
+            PreparedStatement stmt = provider.prepare("UPDATE subscribers SET active = 0 WHERE chatId = ? AND active = 1");
+            stmt.setLong(1, chatId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            logger.error("Error deactivating subscriber {}: {}", chatId, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private static SubscriptionRule readSubscriptionRule(ResultSet rs) throws SQLException {
+        SubscriptionRule rule = new SubscriptionRule();
+        rule.setId(rs.getLong("id"));
+        rule.setChatId(rs.getLong("chatId"));
+        rule.setCategory(rs.getString("category"));
+        rule.setPriceMin(getDouble(rs, "priceMin"));
+        rule.setPriceMax(getDouble(rs, "priceMax"));
+        String keywords = rs.getString("keywords");
+        rule.setKeywords(keywords == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(keywords.split("\n"))));
+        return rule;
+    }
+
+    /**
+     * Записывает начало прохода в журнал runs и возвращает его номер, или -1 при ошибке.
+     */
+    public long startRun(String trigger, long startedAt) {
+        try {
+            PreparedStatement stmt = provider.prepare("INSERT INTO runs (trigger, status, startedAt) VALUES (?, 'running', ?)");
+            stmt.setString(1, trigger);
+            stmt.setLong(2, startedAt);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                return keys.next() ? keys.getLong(1) : -1;
+            }
+        } catch (SQLException e) {
+            logger.error("Error recording run start: {}", e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Записывает итог прохода. result равен null, если проход завершился ошибкой.
+     */
+    public void finishRun(long id, String status, ProcurementPipeline.Result result, String error) {
+        if (id < 0) {
+            return;
+        }
+        try {
+            PreparedStatement stmt = provider.prepare(
+                    "UPDATE runs SET status = ?, finishedAt = ?, found = ?, queued = ?, unmatched = ?, stages = ?, error = ? WHERE id = ?");
+            stmt.setString(1, status);
+            stmt.setLong(2, System.currentTimeMillis());
+            if (result != null) {
+                stmt.setInt(3, result.getFound());
+                stmt.setInt(4, result.getQueued());
+                stmt.setInt(5, result.getUnmatched());
+                stmt.setString(6, result.formatStages());
+            } else {
+                stmt.setNull(3, Types.INTEGER);
+                stmt.setNull(4, Types.INTEGER);
+                stmt.setNull(5, Types.INTEGER);
+                stmt.setNull(6, Types.VARCHAR);
+            }
+            stmt.setString(7, error);
+            stmt.setLong(8, id);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error recording run {} result: {}", id, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Помечает проходы, оставшиеся в состоянии running после остановки процесса.
+     */
+    public int markInterruptedRuns() {
+        try {
+            PreparedStatement stmt = provider.prepare("UPDATE runs SET status = 'interrupted' WHERE status = 'running'");
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error marking interrupted runs: {}", e.getMessage(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * Сохраняет лоты без совпадения с фильтром и возвращает те, что встретились впервые.
+     */
+    public List<UnmatchedLot> saveUnmatchedLots(List<UnmatchedLot> lots) {
+        Timer.Sample sample = Timer.start();
+        try {
+            if (lots.isEmpty()) {
+                return Collections.emptyList();
+            }
+            try {
+                return provider.inTransaction(conn -> {
+                    PreparedStatement stmt = provider.prepare(
+                            "INSERT OR IGNORE INTO unmatched_lots (number, title, link, seenAt) VALUES (?, ?, ?, ?)");
+                    long now = System.currentTimeMillis();
+                    for (UnmatchedLot lot : lots) {
+                        stmt.setString(1, lot.getNumber());
+                        stmt.setString(2, lot.getTitle());
+                        stmt.setString(3, lot.getLink());
+                        stmt.setLong(4, now);
+                        stmt.addBatch();
+                    }
+                    int[] counts = stmt.executeBatch();
+                    List<UnmatchedLot> added = new ArrayList<>();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] > 0) {
+                            added.add(lots.get(i));
+                        }
+                    }
+                    return added;
+                });
+            } catch (SQLException e) {
+                logger.error("Error saving unmatched lots: {}", e.getMessage(), e);
+                return Collections.emptyList();
+            }
+        } finally {
+            sample.stop(AppMetrics.dbQuery("saveUnmatchedLots"));
+        }
+    }
+
+    public void deleteTelegramFileId(String imageKey) {
+        try {
+            PreparedStatement stmt = provider.prepare("DELETE FROM telegram_files WHERE imageKey = ?");
+            stmt.setString(1, imageKey);
             stmt.executeUpdate();
-            logger.info("Saved message mapping: procurementNumber={}, messageId={}, chatId={}", procurementNumber, messageId, chatId);
         } catch (SQLException e) {
-            logger.error("Error saving message mapping: {}", e.getMessage(), e);
+            logger.error("Error deleting Telegram file id for {}: {}", imageKey, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Последние сохранённые соответствия сообщений лотам, сначала самые новые.
+     */
+    public List<MessageMapping> getRecentMessageMappings(int limit) {
+        List<MessageMapping> mappings = new ArrayList<>();
+        try {
+            PreparedStatement stmt = provider.prepare(
+                    "SELECT procurementNumber, messageId, chatId FROM message_mappings ORDER BY rowid DESC LIMIT ?");
+            stmt.setInt(1, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    mappings.add(new MessageMapping(rs.getString(1), rs.getInt(2), rs.getLong(3)));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error loading recent message mappings: {}", e.getMessage(), e);
         }
+        return mappings;
     }
 
     public String getProcurementNumberByMessageId(int messageId, long chatId) {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            PreparedStatement stmt = conn.prepareStatement(
-                    "SELECT procurementNumber FROM message_mappings WHERE messageId = ? AND chatId = ?");
-            stmt.setInt(1, messageId);
-            stmt.setLong(2, chatId);
-            ResultSet rs = stmt.executeQuery();
+        Timer.Sample sample = Timer.start();
+        try {
+            try {
+                PreparedStatement stmt = provider.prepare(
+                        "SELECT procurementNumber FROM message_mappings WHERE chatId = ? AND messageId = ? LIMIT 1");
+                stmt.setLong(1, chatId);
+                stmt.setInt(2, messageId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        String procurementNumber = rs.getString("procurementNumber");
+                        logger.debug("Found procurementNumber={} for messageId={} and chatId={}", procurementNumber, messageId, chatId);
+                        return procurementNumber;
+                    }
+                }
+            } catch (SQLException e) {
+                logger.error("Error retrieving procurement number: {}", e.getMessage(), e);
+            }
+            return null;
+        } finally {
+            sample.stop(AppMetrics.dbQuery("getProcurementNumberByMessageId"));
+        }
+    }
+
+    public void markAsSent(String procurementNumber) {
+        markAsSent(Collections.singletonList(procurementNumber));
+    }
+
+    /**
+     * Отмечает лоты отправленными одной транзакцией.
+     */
+    public void markAsSent(Collection<String> procurementNumbers) {
+        if (procurementNumbers.isEmpty()) {
+            return;
+        }
+        try {
+            int rowsUpdated = provider.inTransaction(conn -> {
+                PreparedStatement stmt = provider.prepare("UPDATE procurements SET isSent = 1 WHERE number = ?");
+                for (String number : procurementNumbers) {
+                    stmt.setString(1, number);
+                    stmt.addBatch();
+                }
+                int updated = 0;
+                for (int count : stmt.executeBatch()) {
+                    updated += Math.max(0, count);
+                }
+                return updated;
+            });
+            logger.info("Marked {} of {} procurements as sent", rowsUpdated, procurementNumbers.size());
+            if (rowsUpdated < procurementNumbers.size()) {
+                logger.warn("Some procurements were not found to mark as sent: {}", procurementNumbers);
+            }
+        } catch (SQLException e) {
+            logger.error("Error marking procurements as sent: {}", e.getMessage(), e);
+        }
+    }
+
+    public Procurement getProcurement(String number) {
+        Timer.Sample sample = Timer.start();
+        try {
+            try {
+                PreparedStatement stmt = provider.prepare("SELECT * FROM procurements WHERE number = ?");
+                stmt.setString(1, number);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        Procurement p = new Procurement();
+                        p.setNumber(rs.getString("number"));
+                        p.setTitle(rs.getString("title"));
+                        p.setLink(rs.getString("link"));
+                        p.setLotType(rs.getString("lotType"));
+                        p.setAddress(rs.getString("address"));
+                        p.setPrice(getDouble(rs, "price"));
+                        p.setMonthlyPrice(getDouble(rs, "monthlyPrice"));
+                        p.setDeposit(getDouble(rs, "deposit"));
+                        p.setContractTerm(rs.getString("contractTerm"));
+                        p.setDeadline(rs.getString("deadline"));
+                        p.setCadastralNumber(rs.getString("cadastralNumber"));
+                        p.setArea(getDouble(rs, "area"));
+                        p.setBiddTypeName(rs.getString("biddTypeName"));
+                        p.setContractTypeName(rs.getString("contractTypeName"));
+                        p.setPricePeriod(rs.getString("pricePeriod"));
+                        p.setDepositRecipientName(rs.getString("depositRecipientName"));
+                        String imageUrls = rs.getString("imageUrls");
+                        p.setImageUrls(imageUrls == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(imageUrls.split("\n"))));
+                        return p;
+                    }
+                }
+            } catch (SQLException e) {
+                logger.error("Error loading procurement {}: {}", number, e.getMessage(), e);
+            }
+            return null;
+        } finally {
+            sample.stop(AppMetrics.dbQuery("getProcurement"));
+        }
+    }
+
+    private static Double getDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * Ставит лоты в очередь отправки сразу во все чаты одной транзакцией. Пара (чат, лот) попадает в очередь только один раз.
+     * Строки идут по лотам, а внутри лота по чатам: диспетчер, читающий очередь по порядку,
+     * чередует чаты и не упирается в лимит одного чата.
+     */
+    public int enqueueDeliveries(Map<String, ? extends Collection<Long>> chatsByLot) {
+        Timer.Sample sample = Timer.start();
+        try {
+            if (chatsByLot.isEmpty()) {
+                return 0;
+            }
+            try {
+                return provider.inTransaction(conn -> {
+                    PreparedStatement stmt = provider.prepare(
+                            "INSERT OR IGNORE INTO outbox (chatId, procurementNumber, status, attempts, nextAttemptAt, createdAt) VALUES (?, ?, 'PENDING', 0, ?, ?)");
+                    long now = System.currentTimeMillis();
+                    for (Map.Entry<String, ? extends Collection<Long>> lot : chatsByLot.entrySet()) {
+                        for (long chatId : lot.getValue()) {
+                            stmt.setLong(1, chatId);
+                            stmt.setString(2, lot.getKey());
+                            stmt.setLong(3, now);
+                            stmt.setLong(4, now);
+                            stmt.addBatch();
+                        }
+                    }
+                    int added = 0;
+                    for (int count : stmt.executeBatch()) {
+                        added += Math.max(0, count);
+                    }
+                    return added;
+                });
+            } catch (SQLException e) {
+                logger.error("Error enqueueing deliveries: {}", e.getMessage(), e);
+                return 0;
+            }
+        } finally {
+            sample.stop(AppMetrics.dbQuery("enqueueDeliveries"));
+        }
+    }
+
+    public List<Delivery> getDueDeliveries(long now, int limit) {
+        Timer.Sample sample = Timer.start();
+        try {
+            List<Delivery> deliveries = new ArrayList<>();
+            try {
+                PreparedStatement stmt = provider.prepare(
+                        "SELECT id, chatId, procurementNumber, attempts FROM outbox WHERE status = 'PENDING' AND nextAttemptAt <= ? ORDER BY nextAttemptAt, id LIMIT ?");
+                stmt.setLong(1, now);
+                stmt.setInt(2, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        deliveries.add(new Delivery(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getInt(4)));
+                    }
+                }
+            } catch (SQLException e) {
+                logger.error("Error loading due deliveries: {}", e.getMessage(), e);
+            }
+            return deliveries;
+        } finally {
+            sample.stop(AppMetrics.dbQuery("getDueDeliveries"));
+        }
+    }
+
+    /**
+     * Время ближайшей запланированной отправки или null, если очередь пуста.
+     */
+    public Long getNextDeliveryTime() {
+        try (ResultSet rs = provider.prepare("SELECT MIN(nextAttemptAt) FROM outbox WHERE status = 'PENDING'").executeQuery()) {
             if (rs.next()) {
-                String procurementNumber = rs.getString("procurementNumber");
-                logger.debug("Found procurementNumber={} for messageId={} and chatId={}", procurementNumber, messageId, chatId);
-                return procurementNumber;
+                long next = rs.getLong(1);
+                return rs.wasNull() ? null : next;
             }
         } catch (SQLException e) {
-            logger.error("Error retrieving procurement number: {}", e.getMessage(), e);
+            logger.error("Error reading delivery queue: {}", e.getMessage(), e);
         }
         return null;
     }
 
-    public void markAsSent(String procurementNumber) {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            PreparedStatement stmt = conn.prepareStatement(
-                    "UPDATE procurements SET isSent = 1 WHERE number = ?");
-            stmt.setString(1, procurementNumber);
-            int rowsUpdated = stmt.executeUpdate();
-            if (rowsUpdated > 0) {
-                logger.info("Marked procurement {} as sent", procurementNumber);
-            } else {
-                logger.warn("No procurement found to mark as sent: {}", procurementNumber);
-            }
+    public int countPendingDeliveries() {
+        try (ResultSet rs = provider.prepare("SELECT COUNT(*) FROM outbox WHERE status = 'PENDING'").executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            logger.error("Error reading delivery queue: {}", e.getMessage(), e);
+            return 0;
+        }
+    }
+
+    public void updateDelivery(long id, String status, int attempts, long nextAttemptAt, String lastError) {
+        try {
+            PreparedStatement stmt = provider.prepare(
+                    "UPDATE outbox SET status = ?, attempts = ?, nextAttemptAt = ?, lastError = ? WHERE id = ?");
+            stmt.setString(1, status);
+            stmt.setInt(2, attempts);
+            stmt.setLong(3, nextAttemptAt);
+            stmt.setString(4, lastError);
+            stmt.setLong(5, id);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error updating delivery {}: {}", id, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Откладывает все ожидающие отправки в чат не раньше указанного времени (retry_after от Telegram).
+     */
+    public void postponeDeliveries(long chatId, long notBefore) {
+        try {
+            PreparedStatement stmt = provider.prepare(
+                    "UPDATE outbox SET nextAttemptAt = MAX(nextAttemptAt, ?) WHERE chatId = ? AND status = 'PENDING'");
+            stmt.setLong(1, notBefore);
+            stmt.setLong(2, chatId);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error postponing deliveries for chat {}: {}", chatId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Отправки, прерванные падением процесса, не повторяются: неизвестно, дошло ли сообщение.
+     */
+    public int recoverInterruptedDeliveries() {
+        try {
+            PreparedStatement stmt = provider.prepare("UPDATE outbox SET status = 'INTERRUPTED' WHERE status = 'SENDING'");
+            return stmt.executeUpdate();
         } catch (SQLException e) {
-            logger.error("Error marking procurement as sent: {}", e.getMessage(), e);
+            logger.error("Error recovering deliveries: {}", e.getMessage(), e);
+            return 0;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package com.example.procurement;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Строка очереди отправки: один лот для одного чата.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Delivery {
+    public static final String PENDING = "PENDING";
+    public static final String SENDING = "SENDING";
+    public static final String SENT = "SENT";
+    public static final String FAILED = "FAILED";
+    public static final String INTERRUPTED = "INTERRUPTED"; // Процесс упал во время отправки, повторять нельзя
+
+    private long id;
+    private long chatId;
+    private String procurementNumber;
+    private int attempts;
+}
@@ -0,0 +1,278 @@
+package com.example.procurement;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Постоянная очередь отправки лотов в Telegram (таблица outbox).
+ * Производители только записывают строки и сразу возвращаются, отправляет один поток-диспетчер
+ * с соблюдением лимитов Telegram: общий telegram.globalRatePerSecond и telegram.chatRatePerSecond на чат.
+ * Ответ 429 откладывает все отправки в этот чат на retry_after секунд.
+ * Отправка, прерванная падением процесса, после перезапуска не повторяется.
+ */
+public class DeliveryQueue {
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryQueue.class);
+    private static final int BATCH_SIZE = 50;
+    private static final long IDLE_WAIT_MS = 30_000;
+    private static final long BASE_BACKOFF_MS = 5_000;
+    private static final int MAPPING_FLUSH_SIZE = 50;
+    private static final long MAPPING_FLUSH_MS = 5_000;
+    private static final long STOP_TIMEOUT_MS = 10_000;
+
+    private final TelegramBot bot;
+    private final DatabaseManager db;
+    private final TokenBucket globalBucket;
+    private final Map<Long, TokenBucket> chatBuckets = new ConcurrentHashMap<>();
+    private final Object signal = new Object();
+    // Отправленные сообщения ещё не в message_mappings: пишутся одной транзакцией в конце пачки,
+    // а при медленной пачке (лимит чата) — каждые MAPPING_FLUSH_SIZE сообщений или MAPPING_FLUSH_MS.
+    // Доступ под блокировкой самого списка: при остановке его дописывает поток shutdown-хука
+    private final List<MessageMapping> sentMessages = new ArrayList<>();
+    private long firstUnsavedAt;
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public DeliveryQueue(TelegramBot bot) {
+        this.bot = bot;
+        this.db = new DatabaseManager();
+        this.globalBucket = new TokenBucket(Config.getTelegramGlobalRatePerSecond(), (int) Math.ceil(Config.getTelegramGlobalRatePerSecond()));
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        int interrupted = db.recoverInterruptedDeliveries();
+        if (interrupted > 0) {
+            logger.warn("{} deliveries were interrupted by a restart and will not be retried", interrupted);
+        }
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "telegram-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        Gauge.builder("delivery.queue.depth", this, DeliveryQueue::depth).register(AppMetrics.registry());
+        logger.info("Delivery queue started, {} deliveries pending", depth());
+    }
+
+    /**
+     * Останавливает диспетчер: текущая отправка доводится до конца, затем записываются номера отправленных сообщений.
+     * Вызывается при остановке процесса до закрытия соединений с базой, см. {@link ConnectionProvider#beforeClose}.
+     */
+    public synchronized void stop() {
+        running = false;
+        wakeUp();
+        if (dispatcher != null) {
+            try {
+                dispatcher.join(STOP_TIMEOUT_MS);
+                if (dispatcher.isAlive()) {
+                    logger.warn("Delivery dispatcher did not stop within {} ms, interrupting", STOP_TIMEOUT_MS);
+                    dispatcher.interrupt();
+                    dispatcher.join(STOP_TIMEOUT_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Диспетчер записывает их сам по выходе; здесь — на случай, если он не успел остановиться
+        saveMessageMappings();
+    }
+
+    /**
+     * Ставит лоты в очередь сразу во все чаты (лот → чаты) одной записью в базу и сразу возвращает управление.
+     */
+    public int enqueue(Map<String, ? extends Collection<Long>> chatsByLot) {
+        Set<Long> chats = new HashSet<>();
+        chatsByLot.values().forEach(chats::addAll);
+        int added = db.enqueueDeliveries(chatsByLot);
+        logger.info("Enqueued {} deliveries of {} procurements for {} chats", added, chatsByLot.size(), chats.size());
+        wakeUp();
+        return added;
+    }
+
+    public int depth() {
+        return db.countPendingDeliveries();
+    }
+
+    private void wakeUp() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                List<Delivery> due = db.getDueDeliveries(System.currentTimeMillis(), BATCH_SIZE);
+                if (due.isEmpty()) {
+                    awaitWork(db.getNextDeliveryTime());
+                    continue;
+                }
+                Map<Long, Long> pausedChats = new HashMap<>();
+                // Один лот обычно идёт в несколько чатов подряд: из базы он читается один раз на пачку
+                Map<String, Procurement> lots = new HashMap<>();
+                try {
+                    for (Delivery delivery : due) {
+                        if (!running) {
+                            break;
+                        }
+                        Long pausedUntil = pausedChats.get(delivery.getChatId());
+                        if (pausedUntil != null && pausedUntil > System.currentTimeMillis()) {
+                            continue;
+                        }
+                        dispatch(delivery, pausedChats, lots);
+                        if (sentMessages.size() >= MAPPING_FLUSH_SIZE
+                                || !sentMessages.isEmpty() && System.currentTimeMillis() - firstUnsavedAt >= MAPPING_FLUSH_MS) {
+                            saveMessageMappings();
+                        }
+                    }
+                } finally {
+                    saveMessageMappings();
+                }
+            } catch (RuntimeException e) {
+                logger.error("Delivery dispatcher error: {}", e.getMessage(), e);
+                awaitWork(System.currentTimeMillis() + BASE_BACKOFF_MS);
+            }
+        }
+        logger.info("Delivery dispatcher stopped");
+    }
+
+    private void awaitWork(Long nextDeliveryTime) {
+        long waitMs = nextDeliveryTime == null ? IDLE_WAIT_MS
+                : Math.min(IDLE_WAIT_MS, nextDeliveryTime - System.currentTimeMillis());
+        if (waitMs <= 0) {
+            return;
+        }
+        synchronized (signal) {
+            try {
+                signal.wait(waitMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+    }
+
+    private void dispatch(Delivery delivery, Map<Long, Long> pausedChats, Map<String, Procurement> lots) {
+        Procurement procurement = lots.computeIfAbsent(delivery.getProcurementNumber(), db::getProcurement);
+        int attempts = delivery.getAttempts() + 1;
+        if (procurement == null) {
+            db.updateDelivery(delivery.getId(), Delivery.FAILED, attempts, System.currentTimeMillis(), "procurement not found");
+            logger.error("Procurement {} not found, dropping delivery {}", delivery.getProcurementNumber(), delivery.getId());
+            return;
+        }
+        throttle(delivery.getChatId(), messagesFor(procurement));
+        db.updateDelivery(delivery.getId(), Delivery.SENDING, attempts, System.currentTimeMillis(), null);
+        Timer.Sample sample = Timer.start();
+        String outcome = "error";
+        try {
+            List<Integer> messageIds = bot.deliverProcurement(delivery.getChatId(), procurement);
+            outcome = "sent";
+            recordMessages(procurement.getNumber(), delivery.getChatId(), messageIds);
+            db.updateDelivery(delivery.getId(), Delivery.SENT, attempts, System.currentTimeMillis(), null);
+            if (isChannel(delivery.getChatId())) {
+                db.markAsSent(procurement.getNumber());
+            }
+            logger.info("Delivered procurement {} to chat {}", procurement.getNumber(), delivery.getChatId());
+        } catch (TelegramApiRequestException e) {
+            Integer retryAfter = TelegramBot.retryAfter(e);
+            outcome = e.getErrorCode() != null ? String.valueOf(e.getErrorCode()) : "error";
+            if (retryAfter != null || Integer.valueOf(429).equals(e.getErrorCode())) {
+                outcome = "429";
+                AppMetrics.registry().counter("telegram.rate_limited", "source", "delivery").increment();
+                long notBefore = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(retryAfter != null ? retryAfter : 1);
+                // 429 не считается неудачной попыткой
+                db.updateDelivery(delivery.getId(), Delivery.PENDING, delivery.getAttempts(), notBefore, e.getMessage());
+                db.postponeDeliveries(delivery.getChatId(), notBefore);
+                pausedChats.put(delivery.getChatId(), notBefore);
+                logger.warn("Telegram rate limit for chat {}, retry after {} s", delivery.getChatId(), retryAfter);
+            } else if (TelegramBot.isRetryable(e)) {
+                retryLater(delivery, attempts, e);
+            } else {
+                db.updateDelivery(delivery.getId(), Delivery.FAILED, attempts, System.currentTimeMillis(), e.getMessage());
+                logger.error("Delivery of {} to chat {} rejected: {}", procurement.getNumber(), delivery.getChatId(), e.getMessage());
+                // 403: бот заблокирован или удалён из чата — подписка больше не нужна
+                if (Integer.valueOf(403).equals(e.getErrorCode())) {
+                    Subscriptions.getInstance().deactivate(delivery.getChatId());
+                }
+            }
+        } catch (TelegramApiException e) {
+            retryLater(delivery, attempts, e);
+        } finally {
+            sample.stop(AppMetrics.timer("telegram.deliveries", "outcome", outcome));
+        }
+    }
+
+    // Ответы на любое сообщение карточки (в том числе на фото медиа-группы без подписи) находят лот сразу, до записи в базу
+    private void recordMessages(String procurementNumber, long chatId, List<Integer> messageIds) {
+        MessageMappingCache cache = MessageMappingCache.getInstance();
+        synchronized (sentMessages) {
+            if (sentMessages.isEmpty()) {
+                firstUnsavedAt = System.currentTimeMillis();
+            }
+            for (int messageId : messageIds) {
+                MessageMapping mapping = new MessageMapping(procurementNumber, messageId, chatId);
+                cache.put(mapping);
+                sentMessages.add(mapping);
+            }
+        }
+    }
+
+    private void saveMessageMappings() {
+        synchronized (sentMessages) {
+            if (!sentMessages.isEmpty()) {
+                db.saveMessageMappings(sentMessages);
+                sentMessages.clear();
+            }
+        }
+    }
+
+    private void retryLater(Delivery delivery, int attempts, Exception e) {
+        if (attempts >= Config.getTelegramMaxAttempts()) {
+            db.updateDelivery(delivery.getId(), Delivery.FAILED, attempts, System.currentTimeMillis(), e.getMessage());
+            logger.error("Giving up delivery of {} to chat {} after {} attempts: {}",
+                    delivery.getProcurementNumber(), delivery.getChatId(), attempts, e.getMessage());
+            return;
+        }
+        long backoff = BASE_BACKOFF_MS << Math.min(10, attempts - 1);
+        db.updateDelivery(delivery.getId(), Delivery.PENDING, attempts, System.currentTimeMillis() + backoff, e.getMessage());
+        logger.warn("Delivery of {} to chat {} failed (attempt {}), retrying in {} ms: {}",
+                delivery.getProcurementNumber(), delivery.getChatId(), attempts, backoff, e.getMessage());
+    }
+
+    // Каждая фотография медиа-группы считается Telegram отдельным сообщением
+    private static int messagesFor(Procurement procurement) {
+        List<String> images = procurement.getImageUrls();
+        return images == null || images.isEmpty() ? 1 : Math.min(4, images.size());
+    }
+
+    private void throttle(long chatId, int messages) {
+        TokenBucket chatBucket = chatBuckets.computeIfAbsent(chatId,
+                id -> new TokenBucket(Config.getTelegramChatRatePerSecond(), 1));
+        long waitNanos = 0;
+        for (int i = 0; i < messages; i++) {
+            waitNanos = Math.max(waitNanos, Math.max(globalBucket.reserve(), chatBucket.reserve()));
+        }
+        if (waitNanos > 0) {
+            LockSupport.parkNanos(waitNanos);
+        }
+    }
+
+    private static boolean isChannel(long chatId) {
+        return String.valueOf(chatId).equals(Config.getChatId());
+    }
+}
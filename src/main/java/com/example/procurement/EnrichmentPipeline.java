@@ -0,0 +1,132 @@
+package com.example.procurement;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Параллельное дополнение лотов данными из карточек torgi.gov.ru.
+ * Число одновременных запросов ограничено parser.enrichConcurrency,
+ * частота запросов к хосту — общим {@link RequestScheduler}.
+ * Картинки лотов заранее скачиваются в {@link ImageCache}, чтобы отправка не ждала загрузки.
+ */
+public class EnrichmentPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(EnrichmentPipeline.class);
+
+    private final LotPageParser lotParser;
+    private final int concurrency;
+    private final ImageCache imageCache;
+    private final boolean prefetchImages;
+
+    public EnrichmentPipeline() {
+        this(new LotPageParser(), Config.getEnrichConcurrency(), ImageCache.getInstance(), Config.getImagePrefetch());
+    }
+
+    public EnrichmentPipeline(LotPageParser lotParser, int concurrency, ImageCache imageCache, boolean prefetchImages) {
+        this.lotParser = lotParser;
+        this.concurrency = Math.max(1, concurrency);
+        this.imageCache = imageCache;
+        this.prefetchImages = prefetchImages;
+    }
+
+    /**
+     * Дополняет все лоты и возвращает управление, когда обработан каждый из них.
+     * Лоты изменяются на месте, поэтому порядок списка сохраняется.
+     */
+    public Summary enrichAll(List<Procurement> procurements) {
+        long started = System.nanoTime();
+        if (procurements.isEmpty()) {
+            return new Summary(0, 0, 0, 0);
+        }
+        int threads = Math.min(concurrency, procurements.size());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new EnrichThreadFactory());
+        long busyNanos = 0;
+        int images = 0;
+        try {
+            List<Future<Long>> futures = new ArrayList<>(procurements.size());
+            List<Future<?>> prefetches = new CopyOnWriteArrayList<>();
+            for (Procurement p : procurements) {
+                futures.add(executor.submit(() -> {
+                    long start = System.nanoTime();
+                    lotParser.enrichProcurement(p);
+                    if (prefetchImages && p.getImageUrls() != null) {
+                        // Картинки лота скачиваются в кэш параллельно, отдельными задачами
+                        for (String url : p.getImageUrls()) {
+                            prefetches.add(executor.submit(() -> imageCache.get(url)));
+                        }
+                    }
+                    return System.nanoTime() - start;
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    busyNanos += futures.get(i).get();
+                } catch (ExecutionException e) {
+                    logger.error("Enrichment task failed for {}: {}", procurements.get(i).getNumber(), e.getCause().getMessage());
+                }
+            }
+            for (Future<?> prefetch : prefetches) {
+                try {
+                    prefetch.get();
+                } catch (ExecutionException e) {
+                    logger.warn("Image prefetch failed: {}", e.getCause().getMessage());
+                }
+            }
+            images = prefetches.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Enrichment interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+        Summary summary = new Summary(procurements.size(), images,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                TimeUnit.NANOSECONDS.toMillis(busyNanos));
+        logger.info("Enrichment finished: {}", summary);
+        return summary;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Summary {
+        private final int lots;
+        private final int images;
+        private final long wallMs;
+        private final long sequentialMs; // Сумма времени отдельных запросов
+
+        public double getSpeedup() {
+            return wallMs == 0 ? 1.0 : (double) sequentialMs / wallMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d lots, %d images in %d ms (sequential %d ms, speedup x%.1f)",
+                    lots, images, wallMs, sequentialMs, getSpeedup());
+        }
+    }
+
+    private static class EnrichThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            // Пул живёт один проход: соединение с базой закрывается вместе с потоком
+            Thread thread = new Thread(ConnectionProvider.closingConnection(r), "enrich-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.procurement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * Слежение за файлом, который правят вне кода (правила фильтра, шаблон карточки).
+ * Фоновый поток ждёт событий {@link WatchService} по каталогу файла и вызывает onChange,
+ * когда файл создан или изменён. Сам файл перечитывает onChange.
+ */
+public class FileWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(FileWatcher.class);
+    // Редакторы сохраняют файл в несколько записей: ждём, пока они закончатся
+    private static final long RELOAD_DELAY_MS = 300;
+
+    private final Path file;
+    private final String name;
+    private final Runnable onChange;
+
+    private FileWatcher(Path file, String name, Runnable onChange) {
+        this.file = file.toAbsolutePath();
+        this.name = name;
+        this.onChange = onChange;
+    }
+
+    /**
+     * Запускает слежение в потоке-демоне "name-watch".
+     */
+    public static void start(Path file, String name, Runnable onChange) {
+        FileWatcher watcher = new FileWatcher(file, name, onChange);
+        Thread thread = new Thread(watcher::watch, name + "-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch() {
+        Path dir = file.getParent();
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            Files.createDirectories(dir);
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            logger.info("Watching {} for {} changes", file, name);
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = isFileEvent(key);
+                if (!key.reset()) {
+                    logger.warn("Directory {} is no longer accessible, {} hot reload stopped", dir, name);
+                    return;
+                }
+                if (!changed) {
+                    continue;
+                }
+                Thread.sleep(RELOAD_DELAY_MS);
+                WatchKey pending;
+                while ((pending = watchService.poll()) != null) {
+                    pending.pollEvents();
+                    pending.reset();
+                }
+                onChange.run();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Watcher for {} failed: {}", file, e.getMessage(), e);
+        }
+    }
+
+    private boolean isFileEvent(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
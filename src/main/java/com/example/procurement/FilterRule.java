@@ -0,0 +1,25 @@
+package com.example.procurement;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Правило фильтра лотов из файла filter.rulesFile.
+ * Незаданные условия не проверяются, правило срабатывает, когда выполнены все заданные.
+ */
+@Data
+public class FilterRule {
+    public static final String INCLUDE = "include";
+    public static final String EXCLUDE = "exclude";
+
+    private String name;
+    private String action; // include или exclude
+    private List<String> keywords; // Хотя бы одно слово есть в заголовке (без учёта регистра, как подстрока)
+    private List<String> patterns; // Хотя бы одно регулярное выражение находится в заголовке (без учёта регистра)
+    private Double priceMin; // Начальная цена из RSS
+    private Double priceMax;
+    private Double areaMin; // Площадь из заголовка, кв.м
+    private Double areaMax;
+    private String lotType; // Подстрока типа лота, например «аренды»
+}
@@ -0,0 +1,112 @@
+package com.example.procurement;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Действующие правила фильтра лотов из файла filter.rulesFile.
+ * Если файла нет, он создаётся из правил по умолчанию. Изменения файла подхватываются на лету ({@link FileWatcher}):
+ * новый {@link LotFilter} подменяет старый целиком, а правила с ошибкой не применяются, и остаются прежние.
+ * Счётчики срабатываний правил переживают перезагрузку.
+ */
+public class FilterRules {
+    private static final Logger logger = LoggerFactory.getLogger(FilterRules.class);
+    private static final FilterRules INSTANCE = new FilterRules(Paths.get(Config.getFilterRulesFile()));
+
+    private final Path file;
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final AtomicReference<LotFilter> current = new AtomicReference<>();
+    private FileTime loadedVersion;
+
+    FilterRules(Path file) {
+        this.file = file.toAbsolutePath();
+        createIfMissing();
+        if (!reload()) {
+            try {
+                current.set(LotFilter.compile(LotFilter.defaultRules(), counters));
+                bindMetrics();
+                logger.warn("Using default filter rules, {} could not be loaded", this.file);
+            } catch (IOException e) {
+                throw new IllegalStateException("Default filter rules are unavailable", e);
+            }
+        }
+        FileWatcher.start(this.file, "filter-rules", this::reload);
+    }
+
+    public static FilterRules getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Текущий фильтр. Лот проверяется целиком одним фильтром, даже если файл в это время перезагружается.
+     */
+    public LotFilter current() {
+        return current.get();
+    }
+
+    public Map<String, Long> matchCounts() {
+        return current.get().matchCounts();
+    }
+
+    /**
+     * Перечитывает файл, если он изменился. Возвращает false, если правила загрузить не удалось.
+     */
+    synchronized boolean reload() {
+        try {
+            FileTime version = Files.getLastModifiedTime(file);
+            if (version.equals(loadedVersion) && current.get() != null) {
+                return true;
+            }
+            List<FilterRule> rules;
+            try (InputStream in = Files.newInputStream(file)) {
+                rules = LotFilter.readRules(in);
+            }
+            LotFilter filter = LotFilter.compile(rules, counters);
+            current.set(filter);
+            bindMetrics();
+            loadedVersion = version;
+            logger.info("Loaded {} filter rules from {}", filter.size(), file);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Error loading filter rules from {}: {}", file, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    // Счётчики правил живут дольше фильтра, поэтому регистрируются один раз на имя правила
+    private void bindMetrics() {
+        counters.forEach((rule, matches) -> FunctionCounter.builder("filter.rule.matches", matches, LongAdder::sum)
+                .tag("rule", rule)
+                .register(AppMetrics.registry()));
+    }
+
+    private void createIfMissing() {
+        if (Files.exists(file)) {
+            return;
+        }
+        try (InputStream in = FilterRules.class.getClassLoader().getResourceAsStream(LotFilter.DEFAULT_RULES)) {
+            if (in == null) {
+                logger.error("Resource not found: {}", LotFilter.DEFAULT_RULES);
+                return;
+            }
+            Files.createDirectories(file.getParent());
+            Files.copy(in, file);
+            logger.info("Created filter rules file {} with default rules", file);
+        } catch (IOException e) {
+            logger.warn("Could not create filter rules file {}: {}", file, e.getMessage());
+        }
+    }
+}
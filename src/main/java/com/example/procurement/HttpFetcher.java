@@ -0,0 +1,208 @@
+package com.example.procurement;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.brotli.dec.BrotliInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * GET-запросы к torgi.gov.ru через общий {@link HttpClient}: HTTP/2 там, где сервер его поддерживает,
+ * соединения переиспользуются между запросами, поэтому TLS-рукопожатие выполняется один раз за проход, а не на каждый лот.
+ * Запросы учитывают лимит RequestScheduler, ответ принимается сжатым (gzip, deflate, br).
+ * ETag и Last-Modified хранятся в таблице http_cache, но записываются только после {@link #commit},
+ * то есть когда ответ действительно обработан: иначе 304 спрятал бы то, что ещё не сохранено.
+ */
+public class HttpFetcher {
+    private static final Logger logger = LoggerFactory.getLogger(HttpFetcher.class);
+    private static final HttpFetcher INSTANCE = new HttpFetcher();
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofMillis(Config.getHttpConnectTimeoutMs()))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    private final Duration readTimeout = Duration.ofMillis(Config.getHttpReadTimeoutMs());
+    private final DatabaseManager db = new DatabaseManager();
+
+    public static HttpFetcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param conditional отправить сохранённые валидаторы; при 304 тело не читается
+     */
+    public Response get(String url, boolean conditional) throws IOException {
+        try {
+            return getAsync(url, conditional).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause != null ? cause.getMessage() : e.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Асинхронный вариант {@link #get}. Ждёт разрешения RequestScheduler в вызывающем потоке,
+     * сам запрос выполняется клиентом без блокировки.
+     */
+    public CompletableFuture<Response> getAsync(String url, boolean conditional) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(readTimeout)
+                .header("User-Agent", "Mozilla/5.0")
+                .header("Accept-Encoding", "gzip, deflate, br")
+                .GET();
+        if (conditional) {
+            HttpValidators cached = db.getHttpValidators(url);
+            if (cached != null) {
+                if (cached.getEtag() != null) {
+                    request.header("If-None-Match", cached.getEtag());
+                }
+                if (cached.getLastModified() != null) {
+                    request.header("If-Modified-Since", cached.getLastModified());
+                }
+            }
+        }
+        RequestScheduler.getInstance().acquire(url);
+        Timer.Sample sample = Timer.start();
+        // Тело читается целиком до завершения future, поэтому срок readTimeout ограничивает и заголовки, и тело:
+        // сервер, замолчавший посреди ответа, не держит обход бесконечно
+        CompletableFuture<HttpResponse<byte[]>> exchange = client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        return exchange
+                .orTimeout(readTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((response, error) -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof TimeoutException) {
+                        exchange.cancel(true);
+                        cause = new HttpTimeoutException("Response from " + url + " not received within " + readTimeout.toMillis() + " ms");
+                    }
+                    sample.stop(AppMetrics.timer("torgi.http.requests",
+                            "endpoint", endpointOf(url),
+                            "status", response != null ? String.valueOf(response.statusCode()) : cause.getClass().getSimpleName()));
+                    if (cause != null) {
+                        throw cause instanceof IOException ? new UncheckedIOException((IOException) cause) : new CompletionException(cause);
+                    }
+                    return toResponse(url, response);
+                });
+    }
+
+    // Тег для метрик: вид запроса к torgi без номера лота
+    private static String endpointOf(String url) {
+        if (url.contains("/rss")) {
+            return "rss";
+        }
+        if (url.contains("/lotcards/")) {
+            return "lotcard";
+        }
+        if (url.contains("/image-preview/")) {
+            return "image";
+        }
+        return "other";
+    }
+
+    private static Response toResponse(String url, HttpResponse<byte[]> response) {
+        HttpHeaders headers = response.headers();
+        HttpValidators validators = new HttpValidators(url,
+                headers.firstValue("ETag").orElse(null), headers.firstValue("Last-Modified").orElse(null));
+        if (response.statusCode() != HTTP_OK) {
+            return new Response(response.statusCode(), validators, null);
+        }
+        try {
+            InputStream body = new ByteArrayInputStream(response.body());
+            return new Response(HTTP_OK, validators, decode(body, headers.firstValue("Content-Encoding").orElse(null)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            logger.debug("Error closing response body: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Запоминает валидаторы обработанного ответа для следующих условных запросов.
+     */
+    public void commit(HttpValidators validators) {
+        if (validators.getEtag() == null && validators.getLastModified() == null) {
+            return;
+        }
+        db.saveHttpValidators(validators);
+    }
+
+    private static InputStream decode(InputStream in, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return in;
+        }
+        switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(in);
+            case "deflate":
+                return new InflaterInputStream(in);
+            case "br":
+                return new BrotliInputStream(in);
+            case "identity":
+            case "":
+                return in;
+            default:
+                in.close();
+                throw new IOException("Unsupported Content-Encoding: " + contentEncoding);
+        }
+    }
+
+    @Getter
+    public static class Response implements Closeable {
+        private final int status;
+        private final HttpValidators validators;
+        private final InputStream body; // Уже распакованное тело, только для 200
+
+        Response(int status, HttpValidators validators, InputStream body) {
+            this.status = status;
+            this.validators = validators;
+            this.body = body;
+        }
+
+        public boolean isNotModified() {
+            return status == HTTP_NOT_MODIFIED;
+        }
+
+        public boolean isOk() {
+            return status == HTTP_OK;
+        }
+
+        @Override
+        public void close() {
+            if (body != null) {
+                closeQuietly(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.procurement;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Валидаторы последнего обработанного ответа по адресу: с ними следующий запрос становится условным.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HttpValidators {
+    private String url;
+    private String etag;
+    private String lastModified;
+}
@@ -0,0 +1,241 @@
+package com.example.procurement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Дисковый кэш превью изображений лотов (images.cacheDir). Ключ — fileId torgi из ссылки,
+ * поэтому одна и та же картинка скачивается один раз. Размер ограничен images.cacheMaxMb,
+ * при превышении удаляются давно не использованные файлы.
+ * Дополнительно хранит file_id, которые вернул Telegram после загрузки картинки (таблица telegram_files),
+ * чтобы повторная отправка того же лота в любой чат обходилась без загрузки.
+ */
+public class ImageCache {
+    private static final Logger logger = LoggerFactory.getLogger(ImageCache.class);
+    private static final String PART_SUFFIX = ".part";
+    private static final Pattern FILE_ID_PATTERN = Pattern.compile("/image-preview/v1/([A-Za-z0-9_-]+)");
+    private static final ImageCache INSTANCE = new ImageCache(Paths.get(Config.getImageCacheDir()),
+            Config.getImageCacheMaxMb() * 1024L * 1024L);
+
+    private final Path dir;
+    private final long maxBytes;
+    // Порядок доступа: первым идёт файл, который дольше всех не использовался
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, String> telegramFileIds = new ConcurrentHashMap<>();
+    private final DatabaseManager db = new DatabaseManager();
+    private long totalBytes;
+
+    ImageCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        loadIndex();
+    }
+
+    public static ImageCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Ключ кэша для ссылки на превью: fileId torgi или хэш ссылки, если fileId в ней нет.
+     */
+    public static String keyOf(String imageUrl) {
+        Matcher matcher = FILE_ID_PATTERN.matcher(imageUrl);
+        if (matcher.find()) {
+            return matcher.group(1);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(imageUrl.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                sb.append(String.format("%02x", digest[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Файл с картинкой: из кэша или скачанный сейчас. null, если скачать не удалось.
+     * Одновременные запросы одной картинки ждут одну загрузку.
+     */
+    public File get(String imageUrl) {
+        String key = keyOf(imageUrl);
+        Path cached = lookup(key);
+        if (cached != null) {
+            return cached.toFile();
+        }
+        CompletableFuture<Path> download = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(key, download);
+        if (existing != null) {
+            Path path = existing.join();
+            return path != null ? path.toFile() : null;
+        }
+        Path path = null;
+        try {
+            path = download(imageUrl, key);
+        } finally {
+            download.complete(path);
+            inFlight.remove(key);
+        }
+        return path != null ? path.toFile() : null;
+    }
+
+    /**
+     * file_id, под которым картинка уже загружена в Telegram, или null.
+     */
+    public String getTelegramFileId(String key) {
+        String fileId = telegramFileIds.get(key);
+        if (fileId == null) {
+            fileId = db.getTelegramFileId(key);
+            if (fileId != null) {
+                telegramFileIds.put(key, fileId);
+            }
+        }
+        return fileId;
+    }
+
+    public void rememberTelegramFileId(String key, String telegramFileId) {
+        if (!telegramFileId.equals(telegramFileIds.put(key, telegramFileId))) {
+            db.saveTelegramFileId(key, telegramFileId);
+        }
+    }
+
+    public void forgetTelegramFileId(String key) {
+        telegramFileIds.remove(key);
+        db.deleteTelegramFileId(key);
+    }
+
+    private Path lookup(String key) {
+        synchronized (entries) {
+            if (entries.get(key) == null) {
+                return null;
+            }
+        }
+        Path path = dir.resolve(key);
+        if (!Files.exists(path)) {
+            synchronized (entries) {
+                Long size = entries.remove(key);
+                if (size != null) {
+                    totalBytes -= size;
+                }
+            }
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            logger.debug("Could not touch cached image {}: {}", key, e.getMessage());
+        }
+        return path;
+    }
+
+    private Path download(String imageUrl, String key) {
+        Path tmp = null;
+        try {
+            try (HttpFetcher.Response response = HttpFetcher.getInstance().get(imageUrl, false)) {
+                if (!response.isOk()) {
+                    logger.warn("Image download from {} returned {}", imageUrl, response.getStatus());
+                    return null;
+                }
+                Files.createDirectories(dir);
+                tmp = Files.createTempFile(dir, key, PART_SUFFIX);
+                Files.copy(response.getBody(), tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Path target = dir.resolve(key);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+            add(key, Files.size(target));
+            logger.debug("Cached image {} from {}", key, imageUrl);
+            return target;
+        } catch (IOException e) {
+            logger.warn("Failed to download image from {}: {}", imageUrl, e.getMessage());
+            return null;
+        } finally {
+            // Недокачанный файл не учитывается в размере кэша, поэтому не должен оставаться на диске
+            if (tmp != null) {
+                deleteQuietly(tmp);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void add(String key, long size) {
+        synchronized (entries) {
+            Long previous = entries.put(key, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                try {
+                    Files.deleteIfExists(dir.resolve(eldest.getKey()));
+                } catch (IOException e) {
+                    logger.warn("Could not evict cached image {}: {}", eldest.getKey(), e.getMessage());
+                }
+                totalBytes -= eldest.getValue();
+                it.remove();
+            }
+        }
+    }
+
+    private void loadIndex() {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        int stale;
+        try (Stream<Path> parts = Files.list(dir)) {
+            // Остатки загрузок, прерванных падением или остановкой: при старте ни одна загрузка ещё не идёт
+            List<Path> leftovers = parts.filter(p -> p.getFileName().toString().endsWith(PART_SUFFIX)).collect(Collectors.toList());
+            leftovers.forEach(ImageCache::deleteQuietly);
+            stale = leftovers.size();
+        } catch (IOException e) {
+            logger.warn("Could not read image cache {}: {}", dir, e.getMessage());
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(Files::isRegularFile)
+                    .sorted(Comparator.comparingLong(p -> p.toFile().lastModified()))
+                    .forEach(p -> {
+                        long size = p.toFile().length();
+                        entries.put(p.getFileName().toString(), size);
+                        totalBytes += size;
+                    });
+            logger.info("Image cache {}: {} files, {} KB, {} stale partial downloads removed", dir, entries.size(), totalBytes / 1024, stale);
+        } catch (IOException e) {
+            logger.warn("Could not read image cache {}: {}", dir, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.procurement;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Поиск набора слов в тексте без учёта регистра за один проход (автомат Ахо — Корасик).
+ * Время поиска зависит только от длины текста, а не от числа слов.
+ * Слову соответствует его индекс в списке, переданном в конструктор; одно слово может входить в список несколько раз.
+ * После построения неизменяем и безопасен для использования из разных потоков.
+ */
+public class KeywordMatcher {
+    private static final int[] NO_MATCHES = new int[0];
+
+    private final List<String> keywords;
+    // Номер класса символа в алфавите слов, 0 — символ не встречается ни в одном слове
+    private final char[] charClass = new char[Character.MAX_VALUE + 1];
+    private final int alphabetSize;
+    private final int[] transitions;
+    private final int[][] matches;
+
+    public KeywordMatcher(List<String> keywords) {
+        this.keywords = Collections.unmodifiableList(new ArrayList<>(keywords));
+        int classes = 1;
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = Character.toLowerCase(keyword.charAt(i));
+                if (charClass[c] == 0) {
+                    charClass[c] = (char) classes++;
+                }
+            }
+        }
+        this.alphabetSize = classes;
+
+        // Бор: переход в 0 означает отсутствие ребра, в корень ребро вести не может
+        List<int[]> rows = new ArrayList<>();
+        List<int[]> outputs = new ArrayList<>();
+        rows.add(new int[alphabetSize]);
+        outputs.add(NO_MATCHES);
+        for (int id = 0; id < keywords.size(); id++) {
+            String keyword = keywords.get(id);
+            if (keyword.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int cls = charClass[Character.toLowerCase(keyword.charAt(i))];
+                if (rows.get(state)[cls] == 0) {
+                    rows.get(state)[cls] = rows.size();
+                    rows.add(new int[alphabetSize]);
+                    outputs.add(NO_MATCHES);
+                }
+                state = rows.get(state)[cls];
+            }
+            outputs.set(state, append(outputs.get(state), id));
+        }
+
+        // Суффиксные ссылки обходом в ширину; недостающие переходы достраиваются до полного автомата
+        int[] fail = new int[rows.size()];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int cls = 1; cls < alphabetSize; cls++) {
+            int child = rows.get(0)[cls];
+            if (child != 0) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] row = rows.get(state);
+            int[] failRow = rows.get(fail[state]);
+            for (int cls = 1; cls < alphabetSize; cls++) {
+                int child = row[cls];
+                if (child != 0) {
+                    fail[child] = failRow[cls];
+                    outputs.set(child, concat(outputs.get(child), outputs.get(fail[child])));
+                    queue.add(child);
+                } else {
+                    row[cls] = failRow[cls];
+                }
+            }
+        }
+
+        this.transitions = new int[rows.size() * alphabetSize];
+        for (int state = 0; state < rows.size(); state++) {
+            System.arraycopy(rows.get(state), 0, transitions, state * alphabetSize, alphabetSize);
+        }
+        this.matches = outputs.toArray(new int[0][]);
+    }
+
+    public int size() {
+        return keywords.size();
+    }
+
+    public String keyword(int id) {
+        return keywords.get(id);
+    }
+
+    /**
+     * Передаёт найденные слова в порядке их окончания в тексте.
+     * Поиск прекращается, как только обработчик вернёт false.
+     */
+    public void scan(CharSequence text, MatchListener listener) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * alphabetSize + charClass[Character.toLowerCase(text.charAt(i))]];
+            for (int id : matches[state]) {
+                if (!listener.onMatch(id, i + 1)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Индексы всех слов, встречающихся в тексте.
+     */
+    public BitSet matchAll(CharSequence text) {
+        BitSet found = new BitSet(keywords.size());
+        scan(text, (id, end) -> {
+            found.set(id);
+            return true;
+        });
+        return found;
+    }
+
+    @FunctionalInterface
+    public interface MatchListener {
+        /**
+         * @param id  индекс слова
+         * @param end позиция сразу за последним символом вхождения
+         * @return false, чтобы остановить поиск
+         */
+        boolean onMatch(int id, int end);
+    }
+
+    private static int[] append(int[] ids, int id) {
+        int[] result = Arrays.copyOf(ids, ids.length + 1);
+        result[ids.length] = id;
+        return result;
+    }
+
+    private static int[] concat(int[] own, int[] inherited) {
+        if (inherited.length == 0) {
+            return own;
+        }
+        int[] result = Arrays.copyOf(own, own.length + inherited.length);
+        System.arraycopy(inherited, 0, result, own.length, inherited.length);
+        return result;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.procurement;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Прореживание подробных логов одного этапа: из событий уровня DEBUG и TRACE от логгеров с префиксом logger
+ * пропускается только каждое every-е. INFO и выше не прореживаются.
+ * Подключается в logback.xml отдельным turboFilter на каждый этап; отброшенные события не создаются вовсе.
+ */
+public class LogSampler extends TurboFilter {
+    private String logger = "";
+    private int every = 1;
+    private final AtomicLong seen = new AtomicLong();
+
+    @Override
+    public FilterReply decide(Marker marker, Logger log, Level level, String format, Object[] params, Throwable t) {
+        // format == null — проверка isXxxEnabled(), а не событие
+        if (format == null || level.isGreaterOrEqual(Level.INFO) || !log.getName().startsWith(logger)) {
+            return FilterReply.NEUTRAL;
+        }
+        // Выключенные уровни отсекает сам logback, в счёт они не идут
+        if (!level.isGreaterOrEqual(log.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        return seen.getAndIncrement() % every == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    public void setLogger(String logger) {
+        this.logger = logger.trim();
+    }
+
+    public void setEvery(int every) {
+        this.every = Math.max(1, every);
+    }
+
+    @Override
+    public void start() {
+        if (!logger.isEmpty()) {
+            super.start();
+        } else {
+            addError("LogSampler requires a logger prefix");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.procurement;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Поля карточки лота torgi.gov.ru, которые нужны боту. Заполняется {@link LotCardReader}.
+ */
+@Data
+public class LotCard {
+    private boolean hasLotName;
+    private String lotName;
+    private String estateAddress;
+    private double priceMin;
+    private double area;
+    private double totalAreaRealty;
+    private String biddEndTime;
+    private String cadastralNumber;
+    private double deposit;
+    private String contractTerm;
+    private String depositRecipientName;
+    private List<String> imageFileIds = new ArrayList<>();
+    private String biddTypeName;
+    private String contractTypeName;
+    private String pricePeriod;
+}
@@ -0,0 +1,246 @@
+package com.example.procurement;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.NumberInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Потоковое чтение JSON карточки лота: нужные поля берутся прямо из токенов,
+ * всё остальное пропускается без построения дерева. Кодировка определяется по самому потоку.
+ * Фабрика парсеров общая и потокобезопасная.
+ */
+public class LotCardReader {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int MAX_IMAGES = 4;
+
+    public LotCard read(InputStream in) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            return read(parser);
+        }
+    }
+
+    public LotCard read(byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return read(parser);
+        }
+    }
+
+    private LotCard read(JsonParser parser) throws IOException {
+        LotCard card = new LotCard();
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Lot card is not a JSON object");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "lotName":
+                    String lotName = text(parser, token);
+                    if (lotName != null) {
+                        card.setHasLotName(true);
+                        card.setLotName(lotName);
+                    }
+                    break;
+                case "estateAddress":
+                    card.setEstateAddress(text(parser, token));
+                    break;
+                case "priceMin":
+                    card.setPriceMin(number(parser, token));
+                    break;
+                case "area":
+                    card.setArea(number(parser, token));
+                    break;
+                case "biddEndTime":
+                    card.setBiddEndTime(text(parser, token));
+                    break;
+                case "cadastralNumber":
+                    card.setCadastralNumber(text(parser, token));
+                    break;
+                case "deposit":
+                    card.setDeposit(number(parser, token));
+                    break;
+                case "contractTerm":
+                    card.setContractTerm(text(parser, token));
+                    break;
+                case "depositRecipientName":
+                    card.setDepositRecipientName(text(parser, token));
+                    break;
+                case "lotImages":
+                    readImages(parser, token, card);
+                    break;
+                case "biddType":
+                    card.setBiddTypeName(readName(parser, token, null));
+                    break;
+                case "characteristics":
+                    readCharacteristics(parser, token, card);
+                    break;
+                case "attributes":
+                    readAttributes(parser, token, card);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return card;
+    }
+
+    private void readImages(JsonParser parser, JsonToken token, LotCard card) throws IOException {
+        if (token != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            String fileId = text(parser, token);
+            if (fileId != null && !fileId.isEmpty() && card.getImageFileIds().size() < MAX_IMAGES) {
+                card.getImageFileIds().add(fileId);
+            }
+        }
+    }
+
+    // Площадь объекта: первая характеристика с кодом totalAreaRealty
+    private void readCharacteristics(JsonParser parser, JsonToken token, LotCard card) throws IOException {
+        if (token != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        boolean found = false;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String code = "";
+            double value = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                if ("code".equals(field)) {
+                    code = orEmpty(text(parser, valueToken));
+                } else if ("characteristicValue".equals(field)) {
+                    value = number(parser, valueToken);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (!found && "totalAreaRealty".equals(code)) {
+                card.setTotalAreaRealty(value);
+                found = true;
+            }
+        }
+    }
+
+    // Вид договора и период цены: по коду атрибута или по его полному названию
+    private void readAttributes(JsonParser parser, JsonToken token, LotCard card) throws IOException {
+        if (token != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String code = "";
+            String fullName = "";
+            String valueName = null;
+            String valueText = null;
+            boolean valueIsObject = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                if ("code".equals(field)) {
+                    code = orEmpty(text(parser, valueToken));
+                } else if ("fullName".equals(field)) {
+                    fullName = orEmpty(text(parser, valueToken));
+                } else if ("value".equals(field)) {
+                    valueIsObject = valueToken == JsonToken.START_OBJECT;
+                    valueName = valueIsObject ? readName(parser, valueToken, null) : null;
+                    valueText = valueToken == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    if (!valueIsObject) {
+                        parser.skipChildren();
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            String value = valueIsObject ? valueName : valueText;
+            if (value == null) {
+                continue;
+            }
+            if ("contractTypeName".equals(code) || "Вид договора".equals(fullName)) {
+                card.setContractTypeName(value);
+            }
+            if ("pricePeriod".equals(code) || "Начальная цена указана за:".equals(fullName)) {
+                card.setPricePeriod(value);
+            }
+        }
+    }
+
+    // Значение поля name вложенного объекта; объект дочитывается до конца
+    private String readName(JsonParser parser, JsonToken token, String defaultValue) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return defaultValue;
+        }
+        String name = defaultValue;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+            if ("name".equals(field)) {
+                String text = text(parser, valueToken);
+                if (text != null) {
+                    name = text;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Текст скалярного значения; null для JSON null, пустая строка для объектов и массивов
+     * (так же ведёт себя JsonNode.asText).
+     */
+    private static String text(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case START_OBJECT:
+            case START_ARRAY:
+                parser.skipChildren();
+                return "";
+            default:
+                return parser.getText();
+        }
+    }
+
+    /**
+     * Числовое значение, как JsonNode.asDouble(0): строки разбираются, всё нечисловое даёт 0.
+     */
+    private static double number(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_STRING:
+                return NumberInput.parseAsDouble(parser.getText().trim(), 0);
+            case VALUE_TRUE:
+                return 1;
+            case START_OBJECT:
+            case START_ARRAY:
+                parser.skipChildren();
+                return 0;
+            default:
+                return 0;
+        }
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
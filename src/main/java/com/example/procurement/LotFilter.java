@@ -0,0 +1,225 @@
+package com.example.procurement;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Скомпилированный набор правил фильтра лотов. Неизменяем, при изменении файла правил собирается заново.
+ * Ключевые слова всех правил ищутся одним проходом по заголовку ({@link TitleAnalyzer}).
+ * Сначала проверяются правила exclude, затем include — в порядке файла; лот без подходящего include-правила отбрасывается.
+ */
+public class LotFilter {
+    static final String NO_MATCH = "no-match";
+    static final String DEFAULT_RULES = "filter-rules.json";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final TitleAnalyzer analyzer;
+    private final List<CompiledRule> excludes;
+    private final List<CompiledRule> includes;
+    private final List<String> ruleNames;
+    private final Map<String, LongAdder> counters;
+
+    private LotFilter(TitleAnalyzer analyzer, List<CompiledRule> excludes, List<CompiledRule> includes,
+                      List<String> ruleNames, Map<String, LongAdder> counters) {
+        this.analyzer = analyzer;
+        this.excludes = excludes;
+        this.includes = includes;
+        this.ruleNames = ruleNames;
+        this.counters = counters;
+    }
+
+    /**
+     * Собирает фильтр из правил. Счётчики срабатываний берутся из counters по имени правила,
+     * поэтому при перезагрузке файла они не обнуляются.
+     *
+     * @throws IllegalArgumentException если правило некорректно
+     */
+    public static LotFilter compile(List<FilterRule> rules, Map<String, LongAdder> counters) {
+        List<String> keywords = new ArrayList<>();
+        Map<String, Integer> keywordIds = new LinkedHashMap<>();
+        List<CompiledRule> excludes = new ArrayList<>();
+        List<CompiledRule> includes = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < rules.size(); i++) {
+            FilterRule rule = rules.get(i);
+            String name = rule.getName() != null && !rule.getName().isBlank() ? rule.getName() : "rule-" + (i + 1);
+            if (!seen.add(name) || NO_MATCH.equals(name)) {
+                throw new IllegalArgumentException("Duplicate filter rule name: " + name);
+            }
+            String action = rule.getAction() != null ? rule.getAction().toLowerCase(Locale.ROOT) : "";
+            if (!FilterRule.INCLUDE.equals(action) && !FilterRule.EXCLUDE.equals(action)) {
+                throw new IllegalArgumentException("Filter rule " + name + ": action must be include or exclude, got " + rule.getAction());
+            }
+            int[] ids = rule.getKeywords() == null ? new int[0] : rule.getKeywords().stream()
+                    .filter(k -> k != null && !k.isEmpty())
+                    .mapToInt(k -> keywordIds.computeIfAbsent(k.toLowerCase(Locale.ROOT), key -> {
+                        keywords.add(key);
+                        return keywords.size() - 1;
+                    }))
+                    .toArray();
+            Pattern[] patterns = rule.getPatterns() == null ? new Pattern[0] : rule.getPatterns().stream()
+                    .map(p -> Pattern.compile(p, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE))
+                    .toArray(Pattern[]::new);
+            CompiledRule compiled = new CompiledRule(name, ids, patterns, rule.getPriceMin(), rule.getPriceMax(),
+                    rule.getAreaMin(), rule.getAreaMax(),
+                    rule.getLotType() != null ? rule.getLotType().toLowerCase(Locale.ROOT) : null,
+                    counters.computeIfAbsent(name, n -> new LongAdder()));
+            (FilterRule.EXCLUDE.equals(action) ? excludes : includes).add(compiled);
+            names.add(name);
+        }
+        counters.computeIfAbsent(NO_MATCH, n -> new LongAdder());
+        return new LotFilter(new TitleAnalyzer(keywords), excludes, includes, Collections.unmodifiableList(names), counters);
+    }
+
+    /**
+     * Правила из JSON вида {"rules": [...]}.
+     */
+    public static List<FilterRule> readRules(InputStream in) throws IOException {
+        RuleFile file = MAPPER.readValue(in, RuleFile.class);
+        return file.getRules() != null ? file.getRules() : Collections.emptyList();
+    }
+
+    /**
+     * Правила по умолчанию, встроенные в jar.
+     */
+    public static List<FilterRule> defaultRules() throws IOException {
+        try (InputStream in = LotFilter.class.getClassLoader().getResourceAsStream(DEFAULT_RULES)) {
+            if (in == null) {
+                throw new IOException("Resource not found: " + DEFAULT_RULES);
+            }
+            return readRules(in);
+        }
+    }
+
+    /**
+     * Разбирает заголовок и применяет правила. Решение — в {@link TitleAnalysis#isRealEstate()} и {@link TitleAnalysis#getRule()}.
+     *
+     * @param price начальная цена из RSS или null
+     */
+    public TitleAnalysis check(String title, Double price) {
+        TitleAnalysis analysis = analyzer.analyze(title);
+        CompiledRule rule = firstMatch(excludes, analysis, title, price);
+        if (rule == null) {
+            rule = firstMatch(includes, analysis, title, price);
+            analysis.setRealEstate(rule != null);
+        }
+        if (rule != null) {
+            rule.matches.increment();
+            analysis.setRule(rule.name);
+        } else {
+            counters.get(NO_MATCH).increment();
+        }
+        return analysis;
+    }
+
+    public int size() {
+        return ruleNames.size();
+    }
+
+    /**
+     * Сколько раз сработало каждое правило (в порядке файла) и сколько лотов не подошло ни под одно.
+     */
+    public Map<String, Long> matchCounts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (String name : ruleNames) {
+            result.put(name, counters.get(name).sum());
+        }
+        result.put(NO_MATCH, counters.get(NO_MATCH).sum());
+        return result;
+    }
+
+    private static CompiledRule firstMatch(List<CompiledRule> rules, TitleAnalysis analysis, String title, Double price) {
+        for (CompiledRule rule : rules) {
+            if (rule.test(analysis, title, price)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private static final class CompiledRule {
+        private final String name;
+        private final int[] keywordIds;
+        private final Pattern[] patterns;
+        private final Double priceMin;
+        private final Double priceMax;
+        private final Double areaMin;
+        private final Double areaMax;
+        private final String lotType;
+        private final LongAdder matches;
+
+        CompiledRule(String name, int[] keywordIds, Pattern[] patterns, Double priceMin, Double priceMax,
+                     Double areaMin, Double areaMax, String lotType, LongAdder matches) {
+            this.name = name;
+            this.keywordIds = keywordIds;
+            this.patterns = patterns;
+            this.priceMin = priceMin;
+            this.priceMax = priceMax;
+            this.areaMin = areaMin;
+            this.areaMax = areaMax;
+            this.lotType = lotType;
+            this.matches = matches;
+        }
+
+        // Сначала дешёвые проверки, регулярные выражения — последними
+        boolean test(TitleAnalysis analysis, String title, Double price) {
+            if (keywordIds.length > 0 && !anyHit(analysis.getKeywordHits())) {
+                return false;
+            }
+            if (lotType != null && !analysis.getLotType().toLowerCase(Locale.ROOT).contains(lotType)) {
+                return false;
+            }
+            if (!inRange(price, priceMin, priceMax) || !inRange(analysis.getArea(), areaMin, areaMax)) {
+                return false;
+            }
+            if (patterns.length == 0) {
+                return true;
+            }
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(title).find()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean anyHit(BitSet hits) {
+            for (int id : keywordIds) {
+                if (hits.get(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean inRange(Double value, Double min, Double max) {
+            if (min == null && max == null) {
+                return true;
+            }
+            if (value == null) {
+                return false;
+            }
+            return (min == null || value >= min) && (max == null || value <= max);
+        }
+    }
+
+    @Data
+    private static class RuleFile {
+        private List<FilterRule> rules;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.procurement;
+
+/**
+ * Вид лота для карточки в Telegram: заголовок, подпись к цене и какие строки показывать.
+ * Определяется один раз по данным карточки torgi (тип торгов, вид договора, период цены).
+ */
+public enum LotKind {
+    DEBTOR("Реализация имущества должников", "Цена за договор", false, false),
+    SALE("Аукцион на право заключения договора купли-продажи недвижимого имущества", "Цена за договор", false, true),
+    RENT_PER_YEAR(LotKind.RENT_TITLE, "Аренда за год", true, true),
+    RENT_PER_MONTH(LotKind.RENT_TITLE, "Аренда в месяц", false, true),
+    RENT(LotKind.RENT_TITLE, "Аренда", false, true);
+
+    private static final String RENT_TITLE = "Аукцион на право заключения договора аренды на недвижимое имущество";
+
+    private final String title;
+    private final String priceLabel;
+    private final boolean showsMonthlyPrice;
+    private final boolean showsOrganizer;
+
+    LotKind(String title, String priceLabel, boolean showsMonthlyPrice, boolean showsOrganizer) {
+        this.title = title;
+        this.priceLabel = priceLabel;
+        this.showsMonthlyPrice = showsMonthlyPrice;
+        this.showsOrganizer = showsOrganizer;
+    }
+
+    public static LotKind of(Procurement procurement) {
+        if (containsIgnoreCase(procurement.getBiddTypeName(), "реализация имущества должников")) {
+            return DEBTOR;
+        }
+        String contractType = procurement.getContractTypeName();
+        if (containsIgnoreCase(contractType, "купли-продажи")) {
+            return SALE;
+        }
+        if (containsIgnoreCase(contractType, "аренды")) {
+            String period = procurement.getPricePeriod();
+            if (period != null && period.contains("год")) {
+                return RENT_PER_YEAR;
+            }
+            if (period != null && period.contains("месяц")) {
+                return RENT_PER_MONTH;
+            }
+        }
+        return RENT;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getPriceLabel() {
+        return priceLabel;
+    }
+
+    public boolean showsMonthlyPrice() {
+        return showsMonthlyPrice;
+    }
+
+    public boolean showsOrganizer() {
+        return showsOrganizer;
+    }
+
+    /**
+     * Категория для подписок: аренда, продажа или имущество должников.
+     */
+    public String getCategory() {
+        switch (this) {
+            case DEBTOR:
+                return SubscriptionRule.DEBTOR;
+            case SALE:
+                return SubscriptionRule.SALE;
+            default:
+                return SubscriptionRule.RENT;
+        }
+    }
+
+    // contains без учёта регистра и без копии строки в нижнем регистре
+    private static boolean containsIgnoreCase(String text, String part) {
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0; i + part.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, part, 0, part.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
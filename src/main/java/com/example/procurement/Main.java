@@ -11,13 +11,21 @@ public class Main {
 
     public static void main(String[] args) {
         try {
+            AppMetrics.startServer();
             TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
             TelegramBot bot = new TelegramBot();
+            DeliveryQueue deliveryQueue = new DeliveryQueue(bot);
+            bot.setDeliveryQueue(deliveryQueue);
             botsApi.registerBot(bot);
             logger.info("Telegram bot registered successfully");
+            deliveryQueue.start();
+            // При остановке диспетчер доотправляет текущий лот и записывает message_mappings до закрытия базы
+            ConnectionProvider.getInstance().beforeClose(deliveryQueue::stop);
+            // Кэш сообщений заполняется до первых ответов пользователей
+            MessageMappingCache.getInstance();
 
             // Запуск планировщика парсинга
-            ProcurementJob.scheduleJob();
+            ProcurementJob.scheduleJob(bot);
             logger.info("Procurement scheduler started");
         } catch (TelegramApiException e) {
             logger.error("Error registering Telegram bot: {}", e.getMessage());
@@ -0,0 +1,17 @@
+package com.example.procurement;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Сообщение бота с карточкой лота: по нему ответ или пересылка пользователя находят лот.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageMapping {
+    private String procurementNumber;
+    private int messageId;
+    private long chatId;
+}
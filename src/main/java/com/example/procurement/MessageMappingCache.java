@@ -0,0 +1,104 @@
+package com.example.procurement;
+
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Кэш соответствий «сообщение бота → лот» для ответов и пересылок пользователей.
+ * Хранит последние bot.mappingCacheSize соответствий, вытесняя те, к которым дольше всех не обращались.
+ * При запуске заполняется последними отправками из message_mappings, затем — каждой новой отправкой.
+ * Промах ищется в базе по индексу (chatId, messageId), найденное попадает в кэш.
+ */
+public class MessageMappingCache {
+    private static final Logger logger = LoggerFactory.getLogger(MessageMappingCache.class);
+    private static final MessageMappingCache INSTANCE = new MessageMappingCache(Config.getBotMappingCacheSize());
+
+    private final Counter hits = AppMetrics.registry().counter("message.mapping.lookups", "result", "hit");
+    private final Counter misses = AppMetrics.registry().counter("message.mapping.lookups", "result", "miss");
+    private final int capacity;
+    private final DatabaseManager db = new DatabaseManager();
+    // Порядок доступа: первой идёт запись, к которой дольше всех не обращались
+    private final LinkedHashMap<Key, String> entries;
+
+    MessageMappingCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.entries = new LinkedHashMap<>(Math.min(this.capacity, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                return size() > MessageMappingCache.this.capacity;
+            }
+        };
+        warmUp();
+    }
+
+    public static MessageMappingCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Номер лота, карточкой которого было сообщение messageId в чате chatId, или null.
+     */
+    public String find(int messageId, long chatId) {
+        Key key = new Key(chatId, messageId);
+        String number;
+        synchronized (this) {
+            number = entries.get(key);
+        }
+        if (number != null) {
+            hits.increment();
+            return number;
+        }
+        misses.increment();
+        number = db.getProcurementNumberByMessageId(messageId, chatId);
+        if (number != null) {
+            put(new MessageMapping(number, messageId, chatId));
+        }
+        return number;
+    }
+
+    public synchronized void put(MessageMapping mapping) {
+        entries.put(new Key(mapping.getChatId(), mapping.getMessageId()), mapping.getProcurementNumber());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void warmUp() {
+        // Из базы приходят сначала самые новые: добавляем в обратном порядке, чтобы они вытеснялись последними
+        List<MessageMapping> recent = db.getRecentMessageMappings(capacity);
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            put(recent.get(i));
+        }
+        logger.info("Message mapping cache warmed with {} recent messages (capacity {})", recent.size(), capacity);
+    }
+
+    private static final class Key {
+        private final long chatId;
+        private final int messageId;
+
+        Key(long chatId, int messageId) {
+            this.chatId = chatId;
+            this.messageId = messageId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return chatId == other.chatId && messageId == other.messageId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(chatId) * 31 + messageId;
+        }
+    }
+}
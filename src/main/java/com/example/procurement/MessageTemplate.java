@@ -0,0 +1,366 @@
+package com.example.procurement;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.FieldPosition;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Шаблон карточки лота в разметке MarkdownV2, разобранный один раз.
+ * <p>
+ * Текст шаблона — готовая разметка: служебные символы в нём экранируются вручную (\( \. и т.п.).
+ * Поля {name} подставляются с экранированием, внутри адреса ссылки ](...) — по правилам для URL.
+ * Строка, в которой у какого-либо поля нет значения, пропускается целиком.
+ * Сообщение собирается в переиспользуемый буфер потока за один проход по шаблону.
+ */
+public final class MessageTemplate {
+    static final String DEFAULT_TEMPLATE = "message-template.txt";
+    private static final DateTimeFormatter DEADLINE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    // Символы, которые MarkdownV2 требует экранировать в тексте и в адресе ссылки
+    private static final boolean[] TEXT_RESERVED = reserved("_*[]()~`>#+-=|{}.!");
+    private static final boolean[] URL_RESERVED = reserved(")\\");
+    private static final int[] DATE_DIGITS = {0, 1, 2, 3, 5, 6, 8, 9};
+    // Организаторов немного, сокращённое название считается один раз на организатора
+    private static final int MAX_ORGANIZERS = 512;
+    private static final Map<String, String> SHORT_ORG_NAMES = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private final Line[] lines;
+
+    private MessageTemplate(Line[] lines) {
+        this.lines = lines;
+    }
+
+    /**
+     * Разбирает текст шаблона. Неизвестное или незакрытое поле — IllegalArgumentException с номером строки.
+     */
+    public static MessageTemplate compile(String text) {
+        String normalized = text.replace("\r\n", "\n");
+        while (normalized.endsWith("\n")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        String[] rows = normalized.split("\n", -1);
+        Line[] lines = new Line[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            lines[i] = compileLine(rows[i], i + 1);
+        }
+        return new MessageTemplate(lines);
+    }
+
+    /**
+     * Шаблон по умолчанию из ресурсов.
+     */
+    public static String defaultText() throws IOException {
+        try (InputStream in = MessageTemplate.class.getClassLoader().getResourceAsStream(DEFAULT_TEMPLATE)) {
+            if (in == null) {
+                throw new IOException("Resource not found: " + DEFAULT_TEMPLATE);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    public String render(Procurement procurement) {
+        Buffers buffers = BUFFERS.get();
+        StringBuilder out = buffers.message;
+        out.setLength(0);
+        LotKind kind = LotKind.of(procurement);
+        boolean first = true;
+        for (Line line : lines) {
+            if (!line.isComplete(procurement, kind)) {
+                continue;
+            }
+            if (!first) {
+                out.append('\n');
+            }
+            first = false;
+            for (Segment segment : line.segments) {
+                if (segment.field == null) {
+                    out.append(segment.text);
+                } else {
+                    writeField(segment.field, segment.url ? URL_RESERVED : TEXT_RESERVED, procurement, kind, buffers);
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Экранирует текст для MarkdownV2 за один проход.
+     */
+    public static void escapeMarkdownV2(CharSequence text, StringBuilder out) {
+        escape(text, TEXT_RESERVED, out);
+    }
+
+    /**
+     * Экранирует строку, в которой {@link #countReserved} насчитал reservedCount служебных символов.
+     * Результат собирается в массив точного размера, без промежуточного буфера.
+     */
+    static String escapeMarkdownV2(String text, int reservedCount) {
+        char[] escaped = new char[text.length() + reservedCount];
+        int pos = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < TEXT_RESERVED.length && TEXT_RESERVED[c]) {
+                escaped[pos++] = '\\';
+            }
+            escaped[pos++] = c;
+        }
+        return new String(escaped);
+    }
+
+    private static void escape(CharSequence text, boolean[] reserved, StringBuilder out) {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < reserved.length && reserved[c]) {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+    }
+
+    /**
+     * Сколько символов в тексте нужно экранировать.
+     */
+    static int countReserved(CharSequence text) {
+        int count = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < TEXT_RESERVED.length && TEXT_RESERVED[c]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void writeField(Field field, boolean[] reserved, Procurement procurement, LotKind kind, Buffers buffers) {
+        StringBuilder out = buffers.message;
+        switch (field) {
+            case LOT_TYPE:
+                escape(kind.getTitle(), reserved, out);
+                break;
+            case TITLE:
+                escape(procurement.getTitle(), reserved, out);
+                break;
+            case PRICE_LABEL:
+                escape(kind.getPriceLabel(), reserved, out);
+                break;
+            case PRICE:
+                writeMoney(procurement.getPrice(), reserved, buffers);
+                break;
+            case MONTHLY_PRICE:
+                writeMoney(procurement.getMonthlyPrice(), reserved, buffers);
+                break;
+            case DEPOSIT:
+                writeMoney(procurement.getDeposit(), reserved, buffers);
+                break;
+            case ORGANIZER:
+                escape(shortOrgName(procurement.getDepositRecipientName()), reserved, out);
+                break;
+            case CONTRACT_TERM:
+                escape(procurement.getContractTerm(), reserved, out);
+                break;
+            case DEADLINE:
+                writeDeadline(procurement.getDeadline(), reserved, out);
+                break;
+            case NUMBER:
+                escape(String.valueOf(procurement.getNumber()), reserved, out);
+                break;
+        }
+    }
+
+    private static void writeMoney(double value, boolean[] reserved, Buffers buffers) {
+        StringBuffer number = buffers.number;
+        number.setLength(0);
+        buffers.money.format(value, number, buffers.position);
+        escape(number, reserved, buffers.message);
+    }
+
+    // Срок подачи из torgi — ISO-8601 со смещением; дата берётся в том же смещении, без разбора времени
+    private static void writeDeadline(String deadline, boolean[] reserved, StringBuilder out) {
+        if (isOffsetDateTime(deadline)) {
+            out.append(deadline, 8, 10);
+            escape("-", reserved, out);
+            out.append(deadline, 5, 7);
+            escape("-", reserved, out);
+            out.append(deadline, 0, 4);
+            return;
+        }
+        String formatted = deadline;
+        try {
+            formatted = OffsetDateTime.parse(deadline).format(DEADLINE_FORMAT);
+        } catch (DateTimeParseException ignore) {
+        }
+        escape(formatted, reserved, out);
+    }
+
+    private static boolean isOffsetDateTime(String value) {
+        if (value.length() < 17 || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != 'T') {
+            return false;
+        }
+        for (int i : DATE_DIGITS) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        char last = value.charAt(value.length() - 1);
+        return last == 'Z' || value.indexOf('+', 11) > 0 || value.indexOf('-', 11) > 0;
+    }
+
+    private static String shortOrgName(String fullName) {
+        String shortName = SHORT_ORG_NAMES.get(fullName);
+        if (shortName == null) {
+            shortName = TelegramBot.getShortOrgNameFull(fullName);
+            if (SHORT_ORG_NAMES.size() >= MAX_ORGANIZERS) {
+                SHORT_ORG_NAMES.clear();
+            }
+            SHORT_ORG_NAMES.put(fullName, shortName);
+        }
+        return shortName;
+    }
+
+    private static Line compileLine(String row, int lineNumber) {
+        List<Segment> segments = new ArrayList<>();
+        List<Field> fields = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        boolean url = false;
+        for (int i = 0; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (c == '\\' && i + 1 < row.length()) {
+                literal.append(c).append(row.charAt(++i));
+            } else if (c == '{') {
+                int end = row.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed field in template line " + lineNumber);
+                }
+                Field field = Field.byName(row.substring(i + 1, end), lineNumber);
+                if (literal.length() > 0) {
+                    segments.add(new Segment(literal.toString(), null, false));
+                    literal.setLength(0);
+                }
+                segments.add(new Segment(null, field, url));
+                fields.add(field);
+                i = end;
+            } else {
+                if (c == '(' && i > 0 && row.charAt(i - 1) == ']') {
+                    url = true;
+                } else if (c == ')' && url) {
+                    url = false;
+                }
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            segments.add(new Segment(literal.toString(), null, false));
+        }
+        return new Line(segments.toArray(new Segment[0]), fields.toArray(new Field[0]));
+    }
+
+    private static boolean[] reserved(String chars) {
+        boolean[] table = new boolean[128];
+        for (char c : chars.toCharArray()) {
+            table[c] = true;
+        }
+        return table;
+    }
+
+    /**
+     * Поля шаблона. Подпись к цене и вид лота берутся из {@link LotKind}.
+     */
+    enum Field {
+        LOT_TYPE("lotType"),
+        TITLE("title"),
+        PRICE_LABEL("priceLabel"),
+        PRICE("price"),
+        MONTHLY_PRICE("monthlyPrice"),
+        DEPOSIT("deposit"),
+        ORGANIZER("organizer"),
+        CONTRACT_TERM("contractTerm"),
+        DEADLINE("deadline"),
+        NUMBER("number");
+
+        private final String name;
+
+        Field(String name) {
+            this.name = name;
+        }
+
+        static Field byName(String name, int lineNumber) {
+            for (Field field : values()) {
+                if (field.name.equals(name)) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Unknown field {" + name + "} in template line " + lineNumber);
+        }
+
+        boolean isPresent(Procurement procurement, LotKind kind) {
+            switch (this) {
+                case TITLE:
+                    return procurement.getTitle() != null;
+                case PRICE:
+                    return procurement.getPrice() != null;
+                case MONTHLY_PRICE:
+                    return kind.showsMonthlyPrice() && procurement.getMonthlyPrice() != null;
+                case DEPOSIT:
+                    return procurement.getDeposit() != null;
+                case ORGANIZER:
+                    return kind.showsOrganizer() && procurement.getDepositRecipientName() != null
+                            && !procurement.getDepositRecipientName().isEmpty();
+                case CONTRACT_TERM:
+                    return procurement.getContractTerm() != null;
+                case DEADLINE:
+                    return procurement.getDeadline() != null;
+                default:
+                    return true;
+            }
+        }
+    }
+
+    // Кусок строки: либо готовый текст, либо поле
+    private static final class Segment {
+        final String text;
+        final Field field;
+        final boolean url;
+
+        Segment(String text, Field field, boolean url) {
+            this.text = text;
+            this.field = field;
+            this.url = url;
+        }
+    }
+
+    private static final class Line {
+        final Segment[] segments;
+        final Field[] fields;
+
+        Line(Segment[] segments, Field[] fields) {
+            this.segments = segments;
+            this.fields = fields;
+        }
+
+        boolean isComplete(Procurement procurement, LotKind kind) {
+            for (Field field : fields) {
+                if (!field.isPresent(procurement, kind)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Буферы потока: сообщение, число и формат суммы (DecimalFormat не потокобезопасен)
+    private static final class Buffers {
+        final StringBuilder message = new StringBuilder(1024);
+        final StringBuffer number = new StringBuffer(32);
+        final DecimalFormat money = new DecimalFormat("#,##0.00");
+        final FieldPosition position = new FieldPosition(0);
+    }
+}
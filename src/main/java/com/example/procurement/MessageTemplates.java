@@ -0,0 +1,88 @@
+package com.example.procurement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Действующий шаблон карточки лота из файла message.templateFile.
+ * Если файла нет, он создаётся из шаблона по умолчанию. Изменения файла подхватываются на лету ({@link FileWatcher}),
+ * как у правил фильтра; шаблон с ошибкой не применяется, и остаётся прежний.
+ */
+public class MessageTemplates {
+    private static final Logger logger = LoggerFactory.getLogger(MessageTemplates.class);
+    private static final MessageTemplates INSTANCE = new MessageTemplates(Paths.get(Config.getMessageTemplateFile()));
+
+    private final Path file;
+    private volatile MessageTemplate current;
+    private FileTime loadedVersion;
+
+    MessageTemplates(Path file) {
+        this.file = file.toAbsolutePath();
+        createIfMissing();
+        if (!reload()) {
+            try {
+                current = MessageTemplate.compile(MessageTemplate.defaultText());
+                logger.warn("Using default message template, {} could not be loaded", this.file);
+            } catch (IOException e) {
+                throw new IllegalStateException("Default message template is unavailable", e);
+            }
+        }
+        FileWatcher.start(this.file, "message-template", this::reload);
+    }
+
+    public static MessageTemplates getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Текущий шаблон карточки лота.
+     */
+    public MessageTemplate procurement() {
+        return current;
+    }
+
+    /**
+     * Перечитывает файл, если он изменился. Возвращает false, если шаблон загрузить не удалось.
+     */
+    synchronized boolean reload() {
+        try {
+            FileTime version = Files.getLastModifiedTime(file);
+            if (version.equals(loadedVersion)) {
+                return current != null;
+            }
+            // Версия с ошибкой больше не перечитывается, пока файл не изменят
+            loadedVersion = version;
+            current = MessageTemplate.compile(Files.readString(file, StandardCharsets.UTF_8));
+            logger.info("Loaded message template from {}", file);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Error loading message template from {}: {}", file, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private void createIfMissing() {
+        if (Files.exists(file)) {
+            return;
+        }
+        try (InputStream in = MessageTemplates.class.getClassLoader().getResourceAsStream(MessageTemplate.DEFAULT_TEMPLATE)) {
+            if (in == null) {
+                logger.error("Resource not found: {}", MessageTemplate.DEFAULT_TEMPLATE);
+                return;
+            }
+            Files.createDirectories(file.getParent());
+            Files.copy(in, file);
+            logger.info("Created message template file {} with default template", file);
+        } catch (IOException e) {
+            logger.warn("Could not create message template file {}: {}", file, e.getMessage());
+        }
+    }
+}
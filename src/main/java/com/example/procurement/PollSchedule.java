@@ -0,0 +1,73 @@
+package com.example.procurement;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Адаптивный интервал опроса RSS-ленты.
+ * В рабочее время после прохода с новыми лотами следующий проход через poll.minMinutes,
+ * после каждого пустого прохода интервал удваивается до poll.maxMinutes.
+ * Вне рабочих часов (poll.workStart–poll.workEnd, часовой пояс poll.timezone) лента опрашивается раз в
+ * poll.offHoursMinutes, но не позже начала рабочего дня.
+ */
+public class PollSchedule {
+    private final Duration min;
+    private final Duration max;
+    private final Duration offHours;
+    private final LocalTime workStart;
+    private final LocalTime workEnd;
+    private final ZoneId zone;
+
+    PollSchedule(Duration min, Duration max, Duration offHours, LocalTime workStart, LocalTime workEnd, ZoneId zone) {
+        this.min = min;
+        this.max = max.compareTo(min) < 0 ? min : max;
+        this.offHours = offHours.compareTo(min) < 0 ? min : offHours;
+        this.workStart = workStart;
+        this.workEnd = workEnd;
+        this.zone = zone;
+    }
+
+    public static PollSchedule fromConfig() {
+        return new PollSchedule(Duration.ofMinutes(Config.getPollMinMinutes()), Duration.ofMinutes(Config.getPollMaxMinutes()),
+                Duration.ofMinutes(Config.getPollOffHoursMinutes()), Config.getPollWorkStart(), Config.getPollWorkEnd(),
+                Config.getPollTimezone());
+    }
+
+    public Duration initial() {
+        return min;
+    }
+
+    /**
+     * Интервал до следующего прохода.
+     *
+     * @param previous интервал, с которым был запущен закончившийся проход
+     * @param newLots  были ли в ленте новые лоты
+     */
+    public Duration next(Duration previous, boolean newLots, ZonedDateTime now) {
+        ZonedDateTime local = now.withZoneSameInstant(zone);
+        if (!isWorkingTime(local.toLocalTime())) {
+            Duration untilWork = Duration.between(local, nextWorkStart(local));
+            return untilWork.compareTo(offHours) < 0 ? max(untilWork, min) : offHours;
+        }
+        if (newLots) {
+            return min;
+        }
+        Duration doubled = previous.multipliedBy(2);
+        return doubled.compareTo(max) > 0 ? max : max(doubled, min);
+    }
+
+    boolean isWorkingTime(LocalTime time) {
+        return !time.isBefore(workStart) && time.isBefore(workEnd);
+    }
+
+    private ZonedDateTime nextWorkStart(ZonedDateTime local) {
+        ZonedDateTime start = local.with(workStart);
+        return start.isAfter(local) ? start : start.plusDays(1);
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+}
@@ -6,54 +6,73 @@ import org.quartz.impl.StdSchedulerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Date;
 
+/**
+ * Проход парсинга по расписанию. В режиме poll.mode=adaptive задача после каждого прохода
+ * сама переставляет свой триггер на время, рассчитанное {@link PollSchedule};
+ * в режиме cron запускается по выражению poll.cron.
+ * Проход не запускается, пока идёт другой (в том числе начатый командой /parse), см. {@link RunCoordinator}.
+ */
 @NoArgsConstructor
+@DisallowConcurrentExecution
 public class ProcurementJob implements Job {
     private static final Logger logger = LoggerFactory.getLogger(ProcurementJob.class);
+    private static final String BOT_KEY = "telegramBot";
+    private static final String INTERVAL_KEY = "intervalSeconds";
+    private static final TriggerKey TRIGGER_KEY = new TriggerKey("procurementTrigger", "group1");
 
     @Override
     public void execute(JobExecutionContext context) {
         logger.info("Starting procurement parsing job");
-        TelegramBot bot = new TelegramBot();
-        RssParser rssParser = new RssParser(); // Убрали аргумент bot
-        LotPageParser lotParser = new LotPageParser();
-        DatabaseManager db = new DatabaseManager();
-
-        // Парсинг RSS
-        List<Procurement> procurements = rssParser.parseUntilEnough(5);
-
-        // Дополнение данных
-        for (Procurement p : procurements) {
-            lotParser.enrichProcurement(p);
-        }
-
-        // Проверка новых лотов
-        List<Procurement> newProcurements = db.getNewProcurements(procurements);
-        db.saveProcurements(newProcurements);
-
-        // Отправка новых лотов в Telegram
-        long chatId = Long.parseLong(Config.getChatId());
-        for (Procurement p : newProcurements) {
-            bot.sendProcurementMessage(chatId, p);
-            db.markAsSent(p.getNumber());
+        boolean newLots = false;
+        // Следующий триггер ставится в любом случае: без него адаптивный опрос остановится до перезапуска
+        try {
+            TelegramBot bot = (TelegramBot) context.getScheduler().getContext().get(BOT_KEY);
+            long chatId = Long.parseLong(Config.getChatId());
+            ProcurementPipeline.Result result = RunCoordinator.getInstance().runExclusive("schedule",
+                    stage -> logger.info("Job progress: {}", stage),
+                    progress -> new ProcurementPipeline(bot).run(chatId, progress));
+            if (result == null) {
+                logger.info("Skipping scheduled run: another run is in progress");
+            } else {
+                newLots = result.hasNewLots();
+                logger.info("Job completed: {}", result);
+            }
+        } catch (SchedulerException e) {
+            logger.error("Error reading scheduler context: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Procurement job failed: {}", e.getMessage(), e);
+        } finally {
+            if (context.getMergedJobDataMap().containsKey(INTERVAL_KEY)) {
+                scheduleNext(context, newLots);
+            }
         }
-        logger.info("Job completed, processed {} procurements", newProcurements.size());
     }
 
-    public static void scheduleJob() {
+    public static void scheduleJob(TelegramBot bot) {
         try {
             Scheduler scheduler = StdSchedulerFactory.getDefaultScheduler();
+            scheduler.getContext().put(BOT_KEY, bot);
             scheduler.start();
 
             JobDetail job = JobBuilder.newJob(ProcurementJob.class)
                     .withIdentity("procurementJob", "group1")
                     .build();
 
-            Trigger trigger = TriggerBuilder.newTrigger()
-                    .withIdentity("procurementTrigger", "group1")
-                    .withSchedule(CronScheduleBuilder.cronSchedule("0 0 10,18 * * ?"))
-                    .build();
+            Trigger trigger;
+            if (Config.getPollAdaptive()) {
+                trigger = pollTrigger(new Date(), PollSchedule.fromConfig().initial());
+                logger.info("Adaptive polling enabled");
+            } else {
+                trigger = TriggerBuilder.newTrigger()
+                        .withIdentity(TRIGGER_KEY)
+                        .withSchedule(CronScheduleBuilder.cronSchedule(Config.getPollCron()))
+                        .build();
+                logger.info("Polling by cron {}", Config.getPollCron());
+            }
 
             scheduler.scheduleJob(job, trigger);
             logger.info("Scheduler started");
@@ -61,4 +80,26 @@ public class ProcurementJob implements Job {
             logger.error("Error scheduling job: {}", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private static void scheduleNext(JobExecutionContext context, boolean newLots) {
+        Duration previous = Duration.ofSeconds(context.getMergedJobDataMap().getLong(INTERVAL_KEY));
+        ZonedDateTime now = ZonedDateTime.now();
+        Duration interval = PollSchedule.fromConfig().next(previous, newLots, now);
+        try {
+            context.getScheduler().rescheduleJob(TRIGGER_KEY, pollTrigger(Date.from(now.plus(interval).toInstant()), interval));
+            logger.info("Next poll in {} min (new lots: {})", interval.toMinutes(), newLots);
+        } catch (SchedulerException e) {
+            logger.error("Error rescheduling procurement job: {}", e.getMessage(), e);
+        }
+    }
+
+    // Одноразовый триггер; интервал, с которым он поставлен, хранится в его данных для расчёта следующего
+    private static Trigger pollTrigger(Date startAt, Duration interval) {
+        return TriggerBuilder.newTrigger()
+                .withIdentity(TRIGGER_KEY)
+                .forJob("procurementJob", "group1")
+                .usingJobData(INTERVAL_KEY, interval.getSeconds())
+                .startAt(startAt)
+                .build();
+    }
+}
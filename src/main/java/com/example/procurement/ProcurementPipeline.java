@@ -0,0 +1,160 @@
+package com.example.procurement;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Один проход парсинга: RSS → обогащение → отбор новых → сохранение → очередь отправки (основной чат и подписчики)
+ * → сводка лотов без совпадения.
+ * Используется и задачей по расписанию, и командой /parse; о ходе работы сообщает через progress.
+ */
+public class ProcurementPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(ProcurementPipeline.class);
+    // Первый лот ленты на момент последнего полного обхода: всё, что ниже него, уже просмотрено
+    private static final String HIGH_WATER_MARK = "rss.highWaterMark";
+    // Последний просмотренный лот обрезанного обхода: следующий проход продолжает с него, пока не дойдёт до отметки
+    private static final String RESUME_CURSOR = "rss.resumeCursor";
+    // Страница ленты, на которой курсор видели: дальше неё курсор ищется не больше чем на parser.maxPages страниц
+    private static final String RESUME_CURSOR_PAGE = "rss.resumeCursorPage";
+
+    private final TelegramBot bot;
+    private final DeliveryQueue deliveryQueue;
+    private final RssParser rssParser = new RssParser();
+    private final EnrichmentPipeline enrichment = new EnrichmentPipeline();
+    private final DatabaseManager db = new DatabaseManager();
+
+    public ProcurementPipeline(TelegramBot bot) {
+        this.bot = bot;
+        this.deliveryQueue = bot.getDeliveryQueue();
+    }
+
+    public Result run(long chatId, Consumer<String> progress) {
+        Map<String, Long> stages = new LinkedHashMap<>();
+        long stageStart = System.nanoTime();
+
+        // Парсинг RSS до отметки прошлого прохода или первого уже известного лота (после курсора, если прошлый обход обрезан)
+        String highWaterMark = db.getPollState(HIGH_WATER_MARK);
+        String resumeCursor = db.getPollState(RESUME_CURSOR);
+        List<Procurement> procurements = rssParser.parseUntilEnough(Config.getParserMaxLots(), highWaterMark,
+                emptyToNull(resumeCursor), parsePage(db.getPollState(RESUME_CURSOR_PAGE)), db::isKnown);
+        progress.accept("📥 Найдено лотов в ленте: " + procurements.size());
+        stageStart = lap(stages, "crawl", stageStart);
+
+        // Дополнение данных
+        EnrichmentPipeline.Summary enrichSummary = enrichment.enrichAll(procurements);
+        progress.accept("🔎 Обогащение: " + enrichSummary);
+        stageStart = lap(stages, "enrich", stageStart);
+
+        // Проверка новых лотов
+        List<Procurement> newProcurements = db.getNewProcurements(procurements);
+        db.saveProcurements(newProcurements);
+        rssParser.commitCompletedPages();
+        String head = rssParser.getCrawlHead();
+        if (head != null && !head.equals(highWaterMark)) {
+            db.savePollState(HIGH_WATER_MARK, head);
+        }
+        // Отметка сдвигается только после полного обхода; до тех пор проходы продолжают обрезанный с курсора
+        String nextCursor = rssParser.getResumeCursor();
+        if (!Objects.equals(emptyToNull(resumeCursor), nextCursor)) {
+            db.savePollState(RESUME_CURSOR, nextCursor != null ? nextCursor : "");
+            db.savePollState(RESUME_CURSOR_PAGE, String.valueOf(rssParser.getResumeCursorPage()));
+            if (nextCursor != null) {
+                logger.info("RSS crawl truncated, next run resumes after lot {}", nextCursor);
+            }
+        }
+        stageStart = lap(stages, "save", stageStart);
+
+        // Постановка новых лотов в очередь отправки в Telegram: в основной чат и подписчикам с подходящими правилами
+        deliveryQueue.enqueue(Subscriptions.getInstance().route(newProcurements, Collections.singletonList(chatId)));
+        stageStart = lap(stages, "enqueue", stageStart);
+
+        // Сводка лотов без совпадения с фильтром: только новые, одним сообщением
+        List<UnmatchedLot> unmatched = db.saveUnmatchedLots(rssParser.getUnmatched().drain());
+        sendUnmatchedDigest(unmatched);
+        lap(stages, "digest", stageStart);
+
+        Result result = new Result(procurements.size(), newProcurements.size(), deliveryQueue.depth(), unmatched.size(),
+                enrichSummary, head != null && !head.equals(highWaterMark), nextCursor != null, stages);
+        logger.info("Pipeline completed: {}", result);
+        RequestScheduler.getInstance().snapshot().forEach((host, stats) -> logger.info("HTTP {}: {}", host, stats));
+        logger.info("Filter rule matches: {}", FilterRules.getInstance().matchCounts());
+        return result;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static int parsePage(String value) {
+        try {
+            return value != null ? Integer.parseInt(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Записывает длительность этапа и возвращает время начала следующего
+    private static long lap(Map<String, Long> stages, String stage, long started) {
+        long now = System.nanoTime();
+        stages.put(stage, TimeUnit.NANOSECONDS.toMillis(now - started));
+        AppMetrics.timer("pipeline.stage", "stage", stage).record(now - started, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    private void sendUnmatchedDigest(List<UnmatchedLot> unmatched) {
+        String chatId = Config.getChatId();
+        if (unmatched.isEmpty() || chatId == null || chatId.isEmpty()) {
+            return;
+        }
+        bot.sendMessageWithRetry(Long.parseLong(chatId), UnmatchedDigest.format(unmatched));
+        logger.info("Sent digest of {} unmatched lots", unmatched.size());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final int found;
+        private final int queued;
+        private final int queueDepth;
+        private final int unmatched;
+        private final EnrichmentPipeline.Summary enrichment;
+        // В ленте появились лоты выше отметки прошлого прохода (в том числе не прошедшие фильтр)
+        private final boolean feedAdvanced;
+        // Обход обрезан лимитом: следующий проход продолжит его с курсора
+        private final boolean truncated;
+        // Длительность этапов в мс, в порядке выполнения
+        private final Map<String, Long> stageMillis;
+
+        /**
+         * Были ли в ленте новые лоты (или остались непросмотренные): по этому признаку опрос ускоряется.
+         */
+        public boolean hasNewLots() {
+            return feedAdvanced || truncated || found > 0 || unmatched > 0;
+        }
+
+        /**
+         * Длительность этапов в виде crawl=120,enrich=3400,...
+         */
+        public String formatStages() {
+            StringBuilder sb = new StringBuilder();
+            stageMillis.forEach((stage, ms) -> sb.append(sb.length() > 0 ? "," : "").append(stage).append('=').append(ms));
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return "found " + found + ", queued " + queued + " (queue depth " + queueDepth + "), unmatched " + unmatched
+                    + ", enrichment: " + enrichment + ", stages (ms): " + formatStages();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.procurement;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Общий планировщик исходящих HTTP-запросов с отдельной маркерной корзиной на каждый хост.
+ * Лимиты задаются http.ratePerSecond / http.burst и переопределяются для хоста
+ * ключами http.rate.&lt;host&gt; / http.burst.&lt;host&gt;.
+ */
+public class RequestScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(RequestScheduler.class);
+    private static final RequestScheduler INSTANCE = new RequestScheduler();
+
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    public static RequestScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Блокирует поток, пока для хоста из url не освободится разрешение на запрос.
+     */
+    public void acquire(String url) {
+        String host = hostOf(url);
+        HostState state = hosts.computeIfAbsent(host, HostState::new);
+        long waitNanos = state.bucket.reserve();
+        state.requests.incrementAndGet();
+        state.throttle.record(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+        if (waitNanos > 0) {
+            state.waitedNanos.addAndGet(waitNanos);
+            LockSupport.parkNanos(waitNanos);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Request slot for {} granted after {} ms", host, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        }
+    }
+
+    public Map<String, HostStats> snapshot() {
+        Map<String, HostStats> stats = new TreeMap<>();
+        hosts.forEach((host, state) -> stats.put(host, new HostStats(state.bucket.getRatePerSecond(),
+                state.bucket.available(), state.requests.get(), TimeUnit.NANOSECONDS.toMillis(state.waitedNanos.get()))));
+        return stats;
+    }
+
+    static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host : url;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    private static class HostState {
+        private final TokenBucket bucket;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong waitedNanos = new AtomicLong();
+        private final Timer throttle;
+
+        HostState(String host) {
+            this.bucket = new TokenBucket(Config.getHostRatePerSecond(host), Config.getHostBurst(host));
+            this.throttle = AppMetrics.timer("http.client.throttle", "host", host);
+            logger.info("Rate limit for {}: {} req/s, burst {}", host, bucket.getRatePerSecond(), Config.getHostBurst(host));
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class HostStats {
+        private final double ratePerSecond;
+        private final double availableTokens;
+        private final long requests;
+        private final long waitedMs;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d requests, waited %d ms, %.1f req/s, %.1f tokens left",
+                    requests, waitedMs, ratePerSecond, availableTokens);
+        }
+    }
+}
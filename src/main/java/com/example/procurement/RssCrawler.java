@@ -0,0 +1,220 @@
+package com.example.procurement;
+
+import com.rometools.rome.feed.synd.SyndEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Итератор по лотам RSS-ленты, который подгружает страницы по мере чтения.
+ * Пока обрабатывается текущая страница, следующая уже скачивается в фоне.
+ * Обход завершается на отметке последнего полного прохода, на первом лоте, известном базе,
+ * или на пустой или не изменившейся с прошлого прохода странице — тогда все лоты выше просмотрены.
+ * Если обход обрезан (parser.maxPages страниц или потребитель взял лотов сколько нужно), он возвращает курсор —
+ * последний просмотренный лот. Следующий обход с этим курсором пропускает уже сохранённые лоты, не останавливаясь на них,
+ * пока не дойдёт до курсора, и только после него отсчитывает parser.maxPages страниц и снова останавливается на известных лотах.
+ * Курсор ищется не дальше parser.maxPages страниц за той, на которой его видели: лот мог уйти из ленты
+ * (в ней только лоты в статусах PUBLISHED и APPLICATIONS_SUBMISSION). Не найденный курсор отбрасывается,
+ * и следующий обход снова идёт до отметки.
+ */
+public class RssCrawler implements Iterator<Procurement>, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RssCrawler.class);
+
+    private final RssParser parser;
+    private final Predicate<String> isKnown;
+    private final String highWaterMark;
+    private final int maxPages;
+    private final ExecutorService prefetcher;
+    private final Set<String> seenNumbers = new HashSet<>();
+    private final Deque<SyndEntry> pageEntries = new ArrayDeque<>();
+
+    private int currentPage;
+    // Последняя страница, которую можно загрузить
+    private int pageLimit;
+    // Курсор обрезанного прошлого обхода; null, когда его нет или обход до него уже дошёл
+    private String resumeAfter;
+    // Страница, на которой курсор видели в последний раз
+    private int resumePage;
+    private boolean resumeLost;
+    private String head;
+    private String lastNumber;
+    private CompletableFuture<List<SyndEntry>> nextPage;
+    private Procurement next;
+    private boolean finished;
+    private boolean complete;
+
+    public RssCrawler(RssParser parser, Predicate<String> isKnown, String highWaterMark, String resumeAfter, int resumePage,
+                      int maxPages) {
+        this.parser = parser;
+        this.isKnown = isKnown;
+        this.highWaterMark = highWaterMark;
+        this.resumeAfter = resumeAfter;
+        this.maxPages = Math.max(1, maxPages);
+        this.resumePage = resumePage > 0 ? resumePage : this.maxPages;
+        this.pageLimit = resumeAfter == null ? this.maxPages : this.resumePage + this.maxPages;
+        this.prefetcher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(ConnectionProvider.closingConnection(r), "rss-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.nextPage = fetchAsync(1, resumeAfter == null);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !finished) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Procurement next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Procurement result = next;
+        next = null;
+        return result;
+    }
+
+    private Procurement advance() {
+        if (pageEntries.isEmpty() && !loadNextPage()) {
+            return null;
+        }
+        SyndEntry entry = pageEntries.poll();
+        String number = parser.extractNumberFromLink(entry.getLink());
+        if (number != null) {
+            if (head == null) {
+                head = number;
+            }
+            if (number.equals(highWaterMark)) {
+                parser.pageCompleted(currentPage);
+                finish("reached the high-water mark " + number + " on page " + currentPage, true);
+                return null;
+            }
+            if (!seenNumbers.add(number)) {
+                return null;
+            }
+            lastNumber = number;
+            if (resumeAfter != null) {
+                if (number.equals(resumeAfter)) {
+                    // Дальше лоты, до которых прошлый обход не дошёл
+                    logger.info("Reached resume cursor {} on page {}", number, currentPage);
+                    resumeAfter = null;
+                    pageLimit = currentPage + maxPages - 1;
+                    return null;
+                }
+                if (isKnown.test(number)) {
+                    // Сохранён прошлым обрезанным обходом — пропускаем, не останавливаясь
+                    return null;
+                }
+            } else if (isKnown.test(number)) {
+                // Дальше на странице только уже обработанные лоты
+                parser.pageCompleted(currentPage);
+                finish("reached known lot " + number + " on page " + currentPage, true);
+                return null;
+            }
+        }
+        return parser.toProcurement(entry, number);
+    }
+
+    private boolean loadNextPage() {
+        if (currentPage > 0) {
+            parser.pageCompleted(currentPage);
+        }
+        if (currentPage >= pageLimit || nextPage == null) {
+            if (resumeAfter != null) {
+                logger.warn("Resume cursor {} not found within {} page(s), falling back to the high-water mark", resumeAfter, currentPage);
+                resumeLost = true;
+            }
+            finish("page limit reached after " + currentPage + " page(s)", false);
+            return false;
+        }
+        List<SyndEntry> entries = nextPage.join();
+        if (entries == null) {
+            nextPage = null;
+            finish("page " + (currentPage + 1) + " could not be loaded", false);
+            return false;
+        }
+        currentPage++;
+        if (entries.isEmpty()) {
+            nextPage = null;
+            finish("feed exhausted after " + currentPage + " page(s)", true);
+            return false;
+        }
+        // Пока курсор не найден, страницы нужны целиком, даже если не изменились с прошлого прохода
+        nextPage = currentPage < pageLimit ? fetchAsync(currentPage + 1, resumeAfter == null) : null;
+        boolean hasUnseen = false;
+        for (SyndEntry entry : entries) {
+            String number = parser.extractNumberFromLink(entry.getLink());
+            if (number == null || !seenNumbers.contains(number)) {
+                hasUnseen = true;
+                break;
+            }
+        }
+        if (!hasUnseen) {
+            // Сервер вернул уже пройденную страницу — дальше идти бессмысленно
+            finish("page " + currentPage + " repeats already seen lots", true);
+            return false;
+        }
+        pageEntries.addAll(entries);
+        return true;
+    }
+
+    private CompletableFuture<List<SyndEntry>> fetchAsync(int page, boolean conditional) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return parser.fetchPage(page, conditional);
+            } catch (Exception e) {
+                logger.error("Error parsing RSS feed page {}: {}", page, e.getMessage());
+                // Не «конец ленты»: обход считается обрезанным, и отметка не сдвигается
+                return null;
+            }
+        }, prefetcher);
+    }
+
+    private void finish(String reason, boolean complete) {
+        if (!finished) {
+            this.complete = complete;
+            logger.info("RSS crawl stopped: {}", reason);
+            close();
+        }
+    }
+
+    /**
+     * Останавливает обход. Если он не дошёл до конца сам, обход считается обрезанным.
+     */
+    @Override
+    public void close() {
+        if (!finished) {
+            finished = true;
+            if (complete) {
+                parser.crawlCompleted(head);
+            } else if (resumeLost) {
+                parser.crawlTruncated(null, 0);
+            } else if (resumeAfter != null) {
+                // Курсор, до которого не дошли, сохраняется: лоты между ним и отметкой ещё не просмотрены
+                parser.crawlTruncated(resumeAfter, resumePage);
+            } else {
+                parser.crawlTruncated(lastNumber, currentPage);
+            }
+        }
+        if (nextPage != null) {
+            nextPage.cancel(true);
+            nextPage = null;
+        }
+        prefetcher.shutdownNow();
+    }
+}
@@ -7,128 +7,216 @@ import com.rometools.rome.io.XmlReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.URL;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class RssParser {
     private static final Logger logger = LoggerFactory.getLogger(RssParser.class);
     private static final String RSS_URL = "https://torgi.gov.ru/new/api/public/lotcards/rss?dynSubjRF=80&lotStatus=PUBLISHED,APPLICATIONS_SUBMISSION&byFirstVersion=true";
     private static final Pattern NUMBER_PATTERN = Pattern.compile("lot/([\\d:_]+)");
-    private static final Pattern CADASTRAL_PATTERN = Pattern.compile("(\\d{2}:\\d{2}:\\d{6,7}:\\d+)");
-    private static final Pattern AREA_PATTERN = Pattern.compile("площадью\\s*([\\d,.]+)\\s*кв\\.?\\s*м");
     private static final Pattern PRICE_PATTERN = Pattern.compile("Начальная цена:\\s*([\\d.]+)");
 
-    public List<Procurement> parseUntilEnough(int maxCount) {
-        List<Procurement> procurements = new ArrayList<>();
-        java.util.Set<String> seenNumbers = new java.util.HashSet<>();
-        try {
-            URL url = new URL(RSS_URL + "&page=1");
-            SyndFeedInput input = new SyndFeedInput();
-            SyndFeed feed = input.build(new XmlReader(url));
+    private final UnmatchedDigest unmatched = new UnmatchedDigest();
+    private final Map<Integer, HttpValidators> fetchedPages = new ConcurrentHashMap<>();
+    private final Queue<HttpValidators> completedPages = new ConcurrentLinkedQueue<>();
+    private volatile String crawlHead;
+    private volatile String resumeCursor;
+    private volatile int resumeCursorPage;
+
+    /**
+     * Ленивый обход ленты постранично: следующая страница загружается, пока фильтруется текущая,
+     * обход останавливается на отметке highWaterMark или на первом лоте, который уже есть в базе.
+     * resumeAfter — курсор обрезанного прошлого обхода (см. {@link RssCrawler}) или null, resumePage — страница, где он был.
+     * Поток нужно закрыть, чтобы остановить предзагрузку; после этого известен итог обхода.
+     */
+    public Stream<Procurement> stream(String highWaterMark, String resumeAfter, int resumePage, Predicate<String> isKnown) {
+        crawlHead = null;
+        resumeCursor = null;
+        resumeCursorPage = 0;
+        RssCrawler crawler = new RssCrawler(this, isKnown, highWaterMark, resumeAfter, resumePage, Config.getParserMaxPages());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(crawler, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(crawler::close);
+    }
+
+    public List<Procurement> parseUntilEnough(int maxCount, String highWaterMark, String resumeAfter, int resumePage,
+                                              Predicate<String> isKnown) {
+        List<Procurement> procurements;
+        try (Stream<Procurement> stream = stream(highWaterMark, resumeAfter, resumePage, isKnown)) {
+            procurements = stream.limit(maxCount).collect(Collectors.toList());
+        }
+        logger.info("Total suitable procurements found: {}", procurements.size());
+        return procurements;
+    }
+
+    /**
+     * Лоты без совпадения с правилами фильтра, встреченные с прошлого вызова {@link UnmatchedDigest#drain()}.
+     */
+    public UnmatchedDigest getUnmatched() {
+        return unmatched;
+    }
+
+    /**
+     * Записи страницы ленты. При conditional страница, не изменившаяся с прошлого обработанного прохода (304),
+     * возвращается пустой, и обход на ней заканчивается.
+     */
+    List<SyndEntry> fetchPage(int page, boolean conditional) throws Exception {
+        String url = RSS_URL + "&page=" + page;
+        try (HttpFetcher.Response response = HttpFetcher.getInstance().get(url, conditional)) {
+            if (response.isNotModified()) {
+                logger.info("Page {} not modified since the last run, skipping", page);
+                return Collections.emptyList();
+            }
+            if (!response.isOk()) {
+                throw new IOException("RSS page " + page + " returned HTTP " + response.getStatus());
+            }
+            SyndFeed feed = new SyndFeedInput().build(new XmlReader(response.getBody()));
             List<SyndEntry> entries = feed.getEntries();
-            logger.info("Found {} items on page 1", entries.size());
+            AppMetrics.registry().summary("rss.page.entries").record(entries.size());
+            fetchedPages.put(page, response.getValidators());
+            logger.info("Found {} items on page {}", entries.size(), page);
+            return entries;
+        }
+    }
 
-            for (SyndEntry entry : entries) {
-                String title = entry.getTitle();
-                logger.info("RSS lot: {}", title);
-                if (procurements.size() >= maxCount) {
-                    break;
-                }
+    /**
+     * Вызывается обходчиком, когда все лоты страницы разобраны (или обход остановился на известном лоте).
+     */
+    void pageCompleted(int page) {
+        HttpValidators validators = fetchedPages.remove(page);
+        if (validators != null) {
+            completedPages.add(validators);
+        }
+    }
 
-                String link = entry.getLink();
-                String description = entry.getDescription().getValue();
-                String number = extractNumberFromLink(link);
+    /**
+     * Вызывается обходчиком, когда обход дошёл до отметки, известного лота или конца ленты: все лоты до него просмотрены.
+     */
+    void crawlCompleted(String head) {
+        crawlHead = head;
+    }
 
-                if (!isRealEstateLot(title)) {
-                    if (Config.getParserVerbose()) {
-                        logger.debug("Skipping non-real estate lot: {}", title);
-                    }
-                    continue;
-                }
+    /**
+     * Вызывается обходчиком, когда обход обрезан до того, как просмотрены все новые лоты.
+     */
+    void crawlTruncated(String cursor, int page) {
+        resumeCursor = cursor;
+        resumeCursorPage = page;
+    }
 
-                if (number == null) {
-                    if (Config.getParserVerbose()) {
-                        logger.debug("No valid number found in link: {}", link);
-                        logger.debug("Skipping procurement with null number: {}", title);
-                    }
-                    continue;
-                }
+    /**
+     * Номер первого лота ленты, если последний обход завершён полностью, иначе null
+     * (обход обрезан по лимиту лотов или страниц, либо лента не изменилась).
+     */
+    public String getCrawlHead() {
+        return crawlHead;
+    }
 
-                // Пропуск дубликатов
-                if (seenNumbers.contains(number)) {
-                    continue;
-                }
-                seenNumbers.add(number);
+    /**
+     * Курсор, с которого следующий обход продолжит обрезанный последний, или null, если обход завершён полностью.
+     */
+    public String getResumeCursor() {
+        return resumeCursor;
+    }
 
-                Procurement procurement = new Procurement();
-                procurement.setNumber(number);
-                procurement.setTitle(title);
-                procurement.setLink(link);
-                procurement.setLotType(extractLotType(title));
-                procurement.setAddress(extractAddress(title));
-                procurement.setPrice(extractPrice(description));
-                procurement.setMonthlyPrice(extractMonthlyPrice(title));
-                procurement.setDeposit(extractDeposit(title));
-                procurement.setContractTerm(extractContractTerm(title));
-                procurement.setDeadline(extractDeadline(entry.getPublishedDate()));
-                procurement.setCadastralNumber(extractCadastralNumber(title));
-                procurement.setArea(extractArea(title));
-                procurement.setImageUrls(new ArrayList<>());
-                procurements.add(procurement);
+    /**
+     * Страница ленты, на которой был курсор {@link #getResumeCursor()}.
+     */
+    public int getResumeCursorPage() {
+        return resumeCursorPage;
+    }
 
-                // Задержка между запросами для снижения нагрузки на сайт
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error parsing RSS feed: {}", e.getMessage());
+    /**
+     * Запоминает валидаторы полностью разобранных страниц. Вызывать после сохранения лотов прохода,
+     * чтобы при падении до сохранения следующий проход не получил 304 на необработанную страницу.
+     */
+    public void commitCompletedPages() {
+        HttpFetcher fetcher = HttpFetcher.getInstance();
+        HttpValidators validators;
+        while ((validators = completedPages.poll()) != null) {
+            fetcher.commit(validators);
         }
-        logger.info("Total suitable procurements found: {}", procurements.size());
-        return procurements;
+        // Страницы, до разбора которых обход не дошёл, в следующий раз запрашиваются заново
+        fetchedPages.clear();
     }
 
-    private boolean isRealEstateLot(String title) {
-        String titleLower = title.toLowerCase();
-        // Хардкодированные слова для фильтрации
-        String[] exclude = {"автомобиль", "камаз", "маз", "трактор", "погрузчик", "лом", "судно", "гидроцикл"};
-        for (String bad : exclude) {
-            if (titleLower.contains(bad)) {
-                logger.info("FILTER: EXCLUDE ('{}') -> {}", bad, title);
-                return false;
+    /**
+     * Превращает запись ленты в лот или возвращает null, если лот не подходит.
+     */
+    Procurement toProcurement(SyndEntry entry, String number) {
+        String title = entry.getTitle();
+        logger.debug("RSS lot: {}", title);
+        String link = entry.getLink();
+        String description = entry.getDescription().getValue();
+
+        Double price = extractPrice(description);
+        TitleAnalysis analysis = FilterRules.getInstance().current().check(title, price);
+        if (!isRealEstateLot(title, analysis)) {
+            if (analysis.getRule() == null) {
+                unmatched.add(new UnmatchedLot(number != null ? number : link, title, link));
             }
-        }
-        String[] include = {"нежилое", "помещение", "нежилые", "помещения", "здание", "жилое", "квартира", "земельный", "участок", "имущественный", "комплекс"};
-        for (String good : include) {
-            if (titleLower.contains(good)) {
-                logger.info("FILTER: INCLUDE ('{}') -> {}", good, title);
-                return true;
+            if (Config.getParserVerbose()) {
+                logger.debug("Skipping non-real estate lot: {}", title);
             }
+            return null;
         }
-        logger.info("FILTER: NO MATCH -> {}", title);
-        // Отправить id лота в чат, если возможно
-        try {
-            String chatId = Config.getChatId();
-            if (chatId != null && !chatId.isEmpty()) {
-                String lotId = extractNumberFromLink(title); // или другой способ получить id
-                if (lotId != null) {
-                    new TelegramBot().sendMessageWithRetry(Long.parseLong(chatId), "NO MATCH: " + lotId);
-                }
+
+        if (number == null) {
+            if (Config.getParserVerbose()) {
+                logger.debug("No valid number found in link: {}", link);
+                logger.debug("Skipping procurement with null number: {}", title);
             }
-        } catch (Exception e) {
-            logger.warn("Failed to send NO MATCH lot id to chat: {}", e.getMessage());
+            return null;
+        }
+
+        Procurement procurement = new Procurement();
+        procurement.setNumber(number);
+        procurement.setTitle(title);
+        procurement.setLink(link);
+        procurement.setLotType(analysis.getLotType());
+        procurement.setAddress(analysis.getAddress());
+        procurement.setPrice(price);
+        procurement.setMonthlyPrice(analysis.getMonthlyPrice());
+        procurement.setDeposit(analysis.getDeposit());
+        procurement.setContractTerm(analysis.getContractTerm());
+        procurement.setDeadline(extractDeadline(entry.getPublishedDate()));
+        procurement.setCadastralNumber(analysis.getCadastralNumber());
+        procurement.setArea(analysis.getArea());
+        procurement.setImageUrls(new ArrayList<>());
+        return procurement;
+    }
+
+    private boolean isRealEstateLot(String title, TitleAnalysis analysis) {
+        AppMetrics.registry().counter("filter.decisions", "decision",
+                analysis.isRealEstate() ? "accepted" : analysis.getRule() != null ? "excluded" : "no-match").increment();
+        if (analysis.isRealEstate()) {
+            logger.debug("FILTER: INCLUDE ('{}') -> {}", analysis.getRule(), title);
+            return true;
         }
+        if (analysis.getRule() != null) {
+            logger.debug("FILTER: EXCLUDE ('{}') -> {}", analysis.getRule(), title);
+            return false;
+        }
+        logger.debug("FILTER: NO MATCH -> {}", title);
         return false;
     }
 
-    private String extractNumberFromLink(String link) {
+    String extractNumberFromLink(String link) {
         if (link == null) {
             if (Config.getParserVerbose()) {
                 logger.debug("Link is null");
@@ -152,32 +240,7 @@ public class RssParser {
         return null;
     }
 
-    private String extractCadastralNumber(String title) {
-        Matcher matcher = CADASTRAL_PATTERN.matcher(title);
-        if (matcher.find()) {
-            String cadastralNumber = matcher.group(1);
-            logger.debug("Extracted cadastral number: {}", cadastralNumber);
-            return cadastralNumber;
-        }
-        return null;
-    }
-
-    private Double extractArea(String title) {
-        Matcher matcher = AREA_PATTERN.matcher(title);
-        if (matcher.find()) {
-            try {
-                String areaText = matcher.group(1).replace(",", ".");
-                Double area = Double.parseDouble(areaText);
-                logger.debug("Extracted area: {}", area);
-                return area;
-            } catch (NumberFormatException e) {
-                logger.warn("Failed to parse area: {}", matcher.group(1));
-            }
-        }
-        return null;
-    }
-
-    private Double extractPrice(String description) {
+    Double extractPrice(String description) {
         Matcher matcher = PRICE_PATTERN.matcher(description);
         if (matcher.find()) {
             try {
@@ -191,65 +254,7 @@ public class RssParser {
         return null;
     }
 
-    private String extractLotType(String title) {
-        String titleLower = title.toLowerCase();
-        if (titleLower.contains("аренды")) {
-            return "Аукцион на право заключения договора аренды на недвижимое имущество";
-        } else if (titleLower.contains("нежилое помещение") || titleLower.contains("нежилые помещения")) {
-            return "Аукцион на право заключения договора аренды на недвижимое имущество";
-        } else if (titleLower.contains("нежилое здание")) {
-            return "Аукцион на право заключения договора аренды на недвижимое имущество";
-        }
-        return "Неизвестный тип";
-    }
-
-    private String extractAddress(String title) {
-        Pattern pattern = Pattern.compile("по адресу:([^,]+)");
-        Matcher matcher = pattern.matcher(title);
-        if (matcher.find()) {
-            String address = matcher.group(1).trim();
-            logger.debug("Extracted address: {}", address);
-            return address;
-        }
-        return "г. Севастополь";
-    }
-
-    private Double extractMonthlyPrice(String title) {
-        Pattern monthlyPricePattern = Pattern.compile("(\\d+[,.]\\d+)\\s*руб\\.?/мес");
-        Matcher matcher = monthlyPricePattern.matcher(title);
-        if (matcher.find()) {
-            try {
-                return Double.parseDouble(matcher.group(1).replace(",", "."));
-            } catch (NumberFormatException e) {
-                logger.warn("Failed to parse monthly price: {}", matcher.group(1));
-            }
-        }
-        return null;
-    }
-
-    private Double extractDeposit(String title) {
-        Pattern depositPattern = Pattern.compile("залог\\s*(\\d+[,.]\\d+)");
-        Matcher matcher = depositPattern.matcher(title);
-        if (matcher.find()) {
-            try {
-                return Double.parseDouble(matcher.group(1).replace(",", "."));
-            } catch (NumberFormatException e) {
-                logger.warn("Failed to parse deposit: {}", matcher.group(1));
-            }
-        }
-        return null;
-    }
-
-    private String extractContractTerm(String title) {
-        Pattern termPattern = Pattern.compile("срок\\s*(?:контракта|аренды)[^\\d]*(\\d+\\s*(?:год|лет|месяц))");
-        Matcher matcher = termPattern.matcher(title);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return null;
-    }
-
-    private String extractDeadline(Date publishedDate) {
+    String extractDeadline(Date publishedDate) {
         if (publishedDate != null) {
             try {
                 SimpleDateFormat formatter = new SimpleDateFormat("dd-MM-yyyy");
@@ -0,0 +1,122 @@
+package com.example.procurement;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Не даёт запустить два прохода парсинга одновременно (по расписанию и командой /parse)
+ * и ведёт журнал проходов в таблице runs: время начала и конца, счётчики, длительность этапов.
+ * Проход, прерванный остановкой процесса, при следующем запуске помечается как interrupted.
+ */
+public class RunCoordinator {
+    private static final Logger logger = LoggerFactory.getLogger(RunCoordinator.class);
+    private static final RunCoordinator INSTANCE = new RunCoordinator();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final DatabaseManager db = new DatabaseManager();
+    private volatile ActiveRun active;
+
+    private RunCoordinator() {
+        int interrupted = db.markInterruptedRuns();
+        if (interrupted > 0) {
+            logger.warn("Marked {} unfinished run(s) as interrupted", interrupted);
+        }
+    }
+
+    public static RunCoordinator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Выполняющийся сейчас проход или null.
+     */
+    public ActiveRun current() {
+        return active;
+    }
+
+    /**
+     * Выполняет проход, если другой сейчас не идёт, и записывает его в журнал.
+     * Возвращает null, не дожидаясь, если проход уже выполняется: к нему можно подключиться через {@link #current()}.
+     *
+     * @param trigger  кто запустил проход: schedule или manual
+     * @param progress получатель сообщений об этапах этого прохода
+     * @param pipeline сам проход; получает функцию, через которую сообщает об этапах
+     */
+    public ProcurementPipeline.Result runExclusive(String trigger, Consumer<String> progress,
+                                                   Function<Consumer<String>, ProcurementPipeline.Result> pipeline) {
+        if (!lock.tryLock()) {
+            return null;
+        }
+        try {
+            long startedAt = System.currentTimeMillis();
+            ActiveRun run = new ActiveRun(db.startRun(trigger, startedAt), trigger, startedAt);
+            run.follow(progress);
+            active = run;
+            logger.info("Run {} started ({})", run.getId(), trigger);
+            try {
+                ProcurementPipeline.Result result = pipeline.apply(run::publish);
+                recordRun(run, "completed");
+                db.finishRun(run.getId(), "completed", result, null);
+                run.done.complete(result);
+                return result;
+            } catch (RuntimeException e) {
+                recordRun(run, "failed");
+                db.finishRun(run.getId(), "failed", null, e.getMessage());
+                run.done.completeExceptionally(e);
+                throw e;
+            } finally {
+                active = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void recordRun(ActiveRun run, String status) {
+        AppMetrics.timer("pipeline.runs", "trigger", run.getTrigger(), "status", status)
+                .record(System.currentTimeMillis() - run.getStartedAt(), TimeUnit.MILLISECONDS);
+    }
+
+    @Getter
+    public static class ActiveRun {
+        private final long id;
+        private final String trigger;
+        private final long startedAt;
+        private volatile String stage;
+        private final List<Consumer<String>> followers = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<ProcurementPipeline.Result> done = new CompletableFuture<>();
+
+        ActiveRun(long id, String trigger, long startedAt) {
+            this.id = id;
+            this.trigger = trigger;
+            this.startedAt = startedAt;
+        }
+
+        /**
+         * Подписывает на сообщения о следующих этапах прохода.
+         */
+        public void follow(Consumer<String> listener) {
+            followers.add(listener);
+        }
+
+        private void publish(String message) {
+            stage = message;
+            for (Consumer<String> follower : followers) {
+                try {
+                    follower.accept(message);
+                } catch (RuntimeException e) {
+                    logger.warn("Error delivering run progress: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
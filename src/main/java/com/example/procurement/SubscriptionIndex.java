@@ -0,0 +1,179 @@
+package com.example.procurement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Индекс всех правил подписки для подбора чатов к лоту без перебора подписчиков.
+ * <p>
+ * Для каждого условия заранее построены множества правил (BitSet по номеру правила), которые ему удовлетворяют:
+ * по категории лота, по порогам цены (отсортированы, нужное множество находится двоичным поиском)
+ * и по словам (все слова всех правил ищутся в заголовке и адресе одним проходом {@link KeywordMatcher}).
+ * Подходящие лоту правила — пересечение этих множеств.
+ * После построения неизменяем и безопасен для использования из разных потоков.
+ */
+public class SubscriptionIndex {
+    private final long[] chatIds;
+    private final BitSet anyCategory = new BitSet();
+    private final Map<String, BitSet> byCategory = new HashMap<>();
+    private final double[] minThresholds;
+    // minMatches[i] — правила без нижней границы и с priceMin <= minThresholds[i]
+    private final BitSet[] minMatches;
+    private final BitSet noMin = new BitSet();
+    private final double[] maxThresholds;
+    // maxMatches[i] — правила без верхней границы и с priceMax >= maxThresholds[i]
+    private final BitSet[] maxMatches;
+    private final BitSet noMax = new BitSet();
+    private final KeywordMatcher matcher;
+    // Номер правила для каждого слова матчера
+    private final int[] keywordRule;
+    private final BitSet noKeywords = new BitSet();
+
+    public SubscriptionIndex(List<SubscriptionRule> rules) {
+        int size = rules.size();
+        chatIds = new long[size];
+        List<String> keywords = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        TreeSet<Double> mins = new TreeSet<>();
+        TreeSet<Double> maxes = new TreeSet<>();
+        for (int i = 0; i < size; i++) {
+            SubscriptionRule rule = rules.get(i);
+            chatIds[i] = rule.getChatId();
+            if (rule.getCategory() == null) {
+                anyCategory.set(i);
+            } else {
+                byCategory.computeIfAbsent(rule.getCategory(), c -> new BitSet()).set(i);
+            }
+            if (rule.getPriceMin() == null) {
+                noMin.set(i);
+            } else {
+                mins.add(rule.getPriceMin());
+            }
+            if (rule.getPriceMax() == null) {
+                noMax.set(i);
+            } else {
+                maxes.add(rule.getPriceMax());
+            }
+            if (rule.getKeywords() == null || rule.getKeywords().isEmpty()) {
+                noKeywords.set(i);
+            } else {
+                for (String keyword : rule.getKeywords()) {
+                    keywords.add(keyword);
+                    owners.add(i);
+                }
+            }
+        }
+        byCategory.values().forEach(set -> set.or(anyCategory));
+
+        minThresholds = mins.stream().mapToDouble(Double::doubleValue).toArray();
+        minMatches = new BitSet[minThresholds.length];
+        maxThresholds = maxes.stream().mapToDouble(Double::doubleValue).toArray();
+        maxMatches = new BitSet[maxThresholds.length];
+        for (int t = 0; t < minThresholds.length; t++) {
+            minMatches[t] = new BitSet();
+        }
+        for (int t = 0; t < maxThresholds.length; t++) {
+            maxMatches[t] = new BitSet();
+        }
+        for (int i = 0; i < size; i++) {
+            SubscriptionRule rule = rules.get(i);
+            if (rule.getPriceMin() != null) {
+                minMatches[Arrays.binarySearch(minThresholds, rule.getPriceMin())].set(i);
+            }
+            if (rule.getPriceMax() != null) {
+                maxMatches[Arrays.binarySearch(maxThresholds, rule.getPriceMax())].set(i);
+            }
+        }
+        // Нижняя граница выполнена для всех порогов от неё и выше, верхняя — от неё и ниже
+        for (int t = 0; t < minThresholds.length; t++) {
+            minMatches[t].or(t > 0 ? minMatches[t - 1] : noMin);
+        }
+        for (int t = maxThresholds.length - 1; t >= 0; t--) {
+            maxMatches[t].or(t < maxThresholds.length - 1 ? maxMatches[t + 1] : noMax);
+        }
+
+        matcher = new KeywordMatcher(keywords);
+        keywordRule = owners.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public int size() {
+        return chatIds.length;
+    }
+
+    /**
+     * Чаты, у которых лоту подходит хотя бы одно правило, в порядке правил.
+     */
+    public Set<Long> chatsFor(Procurement procurement) {
+        Set<Long> chats = new LinkedHashSet<>();
+        BitSet matched = match(procurement);
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            chats.add(chatIds[i]);
+        }
+        return chats;
+    }
+
+    BitSet match(Procurement procurement) {
+        if (chatIds.length == 0) {
+            return new BitSet();
+        }
+        BitSet matched = (BitSet) byCategory.getOrDefault(LotKind.of(procurement).getCategory(), anyCategory).clone();
+        matched.and(priceMatches(procurement.getPrice()));
+        if (matched.isEmpty()) {
+            return matched;
+        }
+        matched.and(keywordMatches(procurement));
+        return matched;
+    }
+
+    private BitSet priceMatches(Double price) {
+        if (price == null) {
+            // Лот без цены подходит только правилам без ценовых условий
+            BitSet result = (BitSet) noMin.clone();
+            result.and(noMax);
+            return result;
+        }
+        // Последний нижний порог, не превышающий цену, и первый верхний, не меньший её
+        int lower = floorIndex(minThresholds, price);
+        BitSet result = (BitSet) (lower >= 0 ? minMatches[lower] : noMin).clone();
+        int upper = ceilingIndex(maxThresholds, price);
+        result.and(upper < maxThresholds.length ? maxMatches[upper] : noMax);
+        return result;
+    }
+
+    private BitSet keywordMatches(Procurement procurement) {
+        BitSet result = (BitSet) noKeywords.clone();
+        if (matcher.size() == 0) {
+            return result;
+        }
+        KeywordMatcher.MatchListener collect = (id, end) -> {
+            result.set(keywordRule[id]);
+            return true;
+        };
+        if (procurement.getTitle() != null) {
+            matcher.scan(procurement.getTitle(), collect);
+        }
+        if (procurement.getAddress() != null) {
+            matcher.scan(procurement.getAddress(), collect);
+        }
+        return result;
+    }
+
+    // Индекс последнего элемента <= value или -1
+    private static int floorIndex(double[] sorted, double value) {
+        int pos = Arrays.binarySearch(sorted, value);
+        return pos >= 0 ? pos : -pos - 2;
+    }
+
+    // Индекс первого элемента >= value или sorted.length
+    private static int ceilingIndex(double[] sorted, double value) {
+        int pos = Arrays.binarySearch(sorted, value);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+}
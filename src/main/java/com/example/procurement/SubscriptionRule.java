@@ -0,0 +1,93 @@
+package com.example.procurement;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Условие подписки чата на лоты. Незаданные условия не проверяются, правило срабатывает, когда выполнены все заданные.
+ * У чата может быть несколько правил: лот приходит, если подошло любое из них.
+ */
+@Data
+public class SubscriptionRule {
+    public static final String RENT = "rent";
+    public static final String SALE = "sale";
+    public static final String DEBTOR = "debtor";
+
+    private long id;
+    private long chatId;
+    private String category; // rent, sale или debtor — см. LotKind.getCategory()
+    private Double priceMin; // Цена лота (за год для аренды)
+    private Double priceMax;
+    private List<String> keywords = new ArrayList<>(); // Хотя бы одно слово есть в заголовке или адресе (без учёта регистра, как подстрока)
+
+    /**
+     * Разбирает аргументы команды /subscribe: [аренда|продажа|должники] [от N] [до N] [слова...].
+     * Возвращает null, если в аргументах ошибка или не задано ни одного условия.
+     */
+    public static SubscriptionRule parse(long chatId, String args) {
+        SubscriptionRule rule = new SubscriptionRule();
+        rule.setChatId(chatId);
+        String[] tokens = args.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        for (int i = 0; i < tokens.length; i++) {
+            String token = tokens[i];
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (token.equals("аренда")) {
+                rule.setCategory(RENT);
+            } else if (token.equals("продажа")) {
+                rule.setCategory(SALE);
+            } else if (token.equals("должники")) {
+                rule.setCategory(DEBTOR);
+            } else if (token.equals("от") || token.equals("до")) {
+                Double value = i + 1 < tokens.length ? parsePrice(tokens[++i]) : null;
+                if (value == null) {
+                    return null;
+                }
+                if (token.equals("от")) {
+                    rule.setPriceMin(value);
+                } else {
+                    rule.setPriceMax(value);
+                }
+            } else {
+                rule.getKeywords().add(token);
+            }
+        }
+        boolean empty = rule.getCategory() == null && rule.getPriceMin() == null && rule.getPriceMax() == null
+                && rule.getKeywords().isEmpty();
+        return empty ? null : rule;
+    }
+
+    private static Double parsePrice(String token) {
+        try {
+            double value = Double.parseDouble(token.replace("_", ""));
+            return value >= 0 ? value : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Описание правила для списка подписок: «#3: аренда, до 50000, слова: балаклав».
+     */
+    public String describe() {
+        StringBuilder sb = new StringBuilder("#").append(id).append(':');
+        if (category != null) {
+            sb.append(' ').append(RENT.equals(category) ? "аренда" : SALE.equals(category) ? "продажа" : "должники").append(',');
+        }
+        if (priceMin != null) {
+            sb.append(" от ").append(String.format(Locale.ROOT, "%.0f", priceMin)).append(',');
+        }
+        if (priceMax != null) {
+            sb.append(" до ").append(String.format(Locale.ROOT, "%.0f", priceMax)).append(',');
+        }
+        if (!keywords.isEmpty()) {
+            sb.append(" слова: ").append(String.join(", ", keywords)).append(',');
+        }
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+}
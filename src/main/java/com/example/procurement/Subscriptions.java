@@ -0,0 +1,95 @@
+package com.example.procurement;
+
+import io.micrometer.core.instrument.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Подписки чатов на лоты (таблицы subscribers и subscription_rules).
+ * Правила всех активных подписчиков собраны в {@link SubscriptionIndex}; индекс перестраивается целиком
+ * при каждом изменении подписок, а проход парсинга подбирает чаты к каждому лоту одним обращением к индексу.
+ */
+public class Subscriptions {
+    private static final Logger logger = LoggerFactory.getLogger(Subscriptions.class);
+    private static final Subscriptions INSTANCE = new Subscriptions();
+
+    private final DatabaseManager db = new DatabaseManager();
+    private final AtomicReference<SubscriptionIndex> index = new AtomicReference<>();
+
+    private Subscriptions() {
+        rebuild();
+        Gauge.builder("subscriptions.rules", this, s -> s.index.get().size()).register(AppMetrics.registry());
+    }
+
+    public static Subscriptions getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Лоты с чатами, в которые их нужно отправить: каждый лот уходит в defaultChats и во все чаты с подходящей подпиской.
+     */
+    public Map<String, Set<Long>> route(List<Procurement> procurements, Collection<Long> defaultChats) {
+        SubscriptionIndex current = index.get();
+        Map<String, Set<Long>> chatsByLot = new LinkedHashMap<>();
+        for (Procurement procurement : procurements) {
+            Set<Long> chats = new LinkedHashSet<>(defaultChats);
+            chats.addAll(current.chatsFor(procurement));
+            chatsByLot.put(procurement.getNumber(), chats);
+        }
+        return chatsByLot;
+    }
+
+    /**
+     * Добавляет правило и возвращает его номер, или -1, если сохранить не удалось.
+     */
+    public long subscribe(SubscriptionRule rule) {
+        long id = db.addSubscriptionRule(rule);
+        if (id > 0) {
+            rule.setId(id);
+            rebuild();
+            logger.info("Chat {} subscribed: {}", rule.getChatId(), rule.describe());
+        }
+        return id;
+    }
+
+    /**
+     * Удаляет правило чата, а при ruleId == null — все его правила. Возвращает число удалённых правил.
+     */
+    public int unsubscribe(long chatId, Long ruleId) {
+        int removed = db.deleteSubscriptionRules(chatId, ruleId);
+        if (removed > 0) {
+            rebuild();
+            logger.info("Chat {} removed {} subscription rule(s)", chatId, removed);
+        }
+        return removed;
+    }
+
+    public List<SubscriptionRule> list(long chatId) {
+        return db.getSubscriptionRules(chatId);
+    }
+
+    /**
+     * Отключает подписчика, которому Telegram больше не даёт писать (бот заблокирован, чат удалён).
+     * Правила сохраняются: новая команда /subscribe снова включит подписку.
+     */
+    public void deactivate(long chatId) {
+        if (db.deactivateSubscriber(chatId)) {
+            rebuild();
+            logger.warn("Subscriber {} deactivated: chat is no longer reachable", chatId);
+        }
+    }
+
+    private synchronized void rebuild() {
+        List<SubscriptionRule> rules = db.getActiveSubscriptionRules();
+        index.set(new SubscriptionIndex(rules));
+        logger.info("Subscription index built: {} rules", rules.size());
+    }
+}
@@ -7,6 +7,9 @@ import org.telegram.telegrambots.meta.api.methods.commands.SetMyCommands;
 import org.telegram.telegrambots.meta.api.methods.send.SendMediaGroup;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.methods.send.SendPhoto;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.MessageEntity;
+import org.telegram.telegrambots.meta.api.objects.PhotoSize;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.commands.BotCommand;
 import org.telegram.telegrambots.meta.api.objects.commands.scope.BotCommandScopeDefault;
@@ -14,18 +17,29 @@ import org.telegram.telegrambots.meta.api.objects.media.InputMedia;
 import org.telegram.telegrambots.meta.api.objects.media.InputMediaPhoto;
 import org.telegram.telegrambots.meta.api.objects.InputFile;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
 
-import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
-import java.io.InputStream;
-import java.net.URL;
-import java.net.HttpURLConnection;
+import java.util.Locale;
+import java.io.File;
 
 public class TelegramBot extends TelegramLongPollingBot {
     private static final Logger logger = LoggerFactory.getLogger(TelegramBot.class);
-    private static final DecimalFormat DECIMAL_FORMAT = new DecimalFormat("#,##0.00");
+    private static final int MAX_SEND_ATTEMPTS = 3;
+    private static final String BOT_USERNAME = "SevNTO_bot";
+    // Параметр ссылки «Пиши» в карточке лота, см. message-template.txt
+    private static final String LOT_START_PARAM = "?start=lot_";
+    // Ответы Telegram на file_id, который он больше не узнаёт
+    private static final String[] FILE_ID_ERRORS = {"wrong file identifier", "wrong remote file identifier",
+            "failed to get http url content", "file reference"};
+
+    private final UpdateDispatcher updateDispatcher = new UpdateDispatcher(Config.getBotWorkers(), Config.getBotQueueSize());
+    private DeliveryQueue deliveryQueue;
 
     public TelegramBot() {
         initializeCommands();
@@ -39,6 +53,9 @@ public class TelegramBot extends TelegramLongPollingBot {
         List<BotCommand> commands = new ArrayList<>();
         commands.add(new BotCommand("/parse", "Запустить парсинг лотов"));
         commands.add(new BotCommand("/addadmin", "Добавить админа (формат: /addadmin <chatId>)"));
+        commands.add(new BotCommand("/subscribe", "Подписаться на лоты (формат: /subscribe [аренда|продажа|должники] [от N] [до N] [слова])"));
+        commands.add(new BotCommand("/subscriptions", "Мои подписки"));
+        commands.add(new BotCommand("/unsubscribe", "Отписаться (формат: /unsubscribe [номер])"));
         SetMyCommands setMyCommands = new SetMyCommands();
         setMyCommands.setCommands(commands);
         setMyCommands.setScope(new BotCommandScopeDefault());
@@ -52,7 +69,7 @@ public class TelegramBot extends TelegramLongPollingBot {
 
     @Override
     public String getBotUsername() {
-        return "SevNTO_bot";
+        return BOT_USERNAME;
     }
 
     @Override
@@ -60,8 +77,16 @@ public class TelegramBot extends TelegramLongPollingBot {
         return Config.getBotToken();
     }
 
+    /**
+     * Вызывается из потока long polling: обработка уходит в исполнитель чата, чтобы не задерживать другие чаты.
+     */
     @Override
     public void onUpdateReceived(Update update) {
+        long chatId = update.hasMessage() ? update.getMessage().getChatId() : 0L;
+        updateDispatcher.submit(chatId, () -> handleUpdate(update));
+    }
+
+    private void handleUpdate(Update update) {
         if (update.hasMessage() && update.getMessage().hasText()) {
             String messageText = update.getMessage().getText();
             long chatId = update.getMessage().getChatId();
@@ -72,19 +97,12 @@ public class TelegramBot extends TelegramLongPollingBot {
 
             if (messageText.equals("/parse") && adminIds.contains(receivedChatId)) {
                 logger.info("Received /parse command from chat ID: {}", receivedChatId);
-                sendMessageWithRetry(chatId, "🚀 Запускаю парсинг...");
-                List<Procurement> procurements = new RssParser().parseUntilEnough(5);
-                for (Procurement p : procurements) {
-                    new LotPageParser().enrichProcurement(p);
+                RunCoordinator.ActiveRun active = RunCoordinator.getInstance().current();
+                if (active != null) {
+                    followRun(chatId, active);
+                } else if (!updateDispatcher.submitBackground(() -> runManualParse(chatId))) {
+                    sendMessageWithRetry(chatId, "⛔ Слишком много запущенных задач, попробуйте позже");
                 }
-                DatabaseManager db = new DatabaseManager();
-                List<Procurement> newProcurements = db.getNewProcurements(procurements);
-                db.saveProcurements(newProcurements);
-                for (Procurement p : newProcurements) {
-                    sendProcurementMessage(chatId, p);
-                }
-                sendMessageWithRetry(chatId, "✅ Парсинг завершён, обработано " + newProcurements.size() + " лотов");
-                logger.info("Manual parse completed, {} procurements processed", newProcurements.size());
             } else if (messageText.equals("/parse")) {
                 sendMessageWithRetry(chatId, "⛔ У вас нет доступа");
                 logger.info("Access denied for /parse command from chat ID: {}", receivedChatId);
@@ -101,9 +119,14 @@ public class TelegramBot extends TelegramLongPollingBot {
             } else if (messageText.startsWith("/addadmin")) {
                 sendMessageWithRetry(chatId, "⛔ У вас нет доступа");
                 logger.info("Access denied for /addadmin command from chat ID: {}", receivedChatId);
+            } else if (messageText.equals("/subscribe") || messageText.startsWith("/subscribe ")) {
+                handleSubscribe(chatId, messageText.substring("/subscribe".length()));
+            } else if (messageText.equals("/subscriptions")) {
+                handleSubscriptions(chatId);
+            } else if (messageText.equals("/unsubscribe") || messageText.startsWith("/unsubscribe ")) {
+                handleUnsubscribe(chatId, messageText.substring("/unsubscribe".length()).trim());
             } else if (messageText.startsWith("/start lot_") && update.getMessage().getChatId() != null) {
                 String procurementNumber = messageText.replace("/start lot_", "");
-                DatabaseManager db = new DatabaseManager();
                 sendMessageWithRetry(chatId, "Вы выбрали лот №" + procurementNumber + ". Напишите ваш вопрос!");
                 logger.info("User started chat for lot: {}", procurementNumber);
             } else if (update.getMessage().getReplyToMessage() != null) {
@@ -114,141 +137,223 @@ public class TelegramBot extends TelegramLongPollingBot {
         }
     }
 
-    public void sendProcurementMessage(long chatId, Procurement procurement) {
-        // --- Выбор заголовка и подписи к цене ---
-        String lotType = "";
-        String priceLabel = "";
-        if (procurement.getBiddTypeName() != null && procurement.getBiddTypeName().toLowerCase().contains("реализация имущества должников")) {
-            lotType = "Реализация имущества должников";
-            priceLabel = "Цена за договор";
-        } else if (procurement.getContractTypeName() != null && procurement.getContractTypeName().toLowerCase().contains("купли-продажи")) {
-            lotType = "Аукцион на право заключения договора купли-продажи недвижимого имущества";
-            priceLabel = "Цена за договор";
-        } else if (procurement.getContractTypeName() != null && procurement.getContractTypeName().toLowerCase().contains("аренды")) {
-            lotType = "Аукцион на право заключения договора аренды на недвижимое имущество";
-            if (procurement.getPricePeriod() != null && procurement.getPricePeriod().contains("год")) {
-                priceLabel = "Аренда за год";
-            } else if (procurement.getPricePeriod() != null && procurement.getPricePeriod().contains("месяц")) {
-                priceLabel = "Аренда в месяц";
-            } else {
-                priceLabel = "Аренда";
-            }
-        } else {
-            lotType = "Аукцион на право заключения договора аренды на недвижимое имущество";
-            priceLabel = "Аренда";
-        }
-        // --- Формируем текст сообщения ---
-        StringBuilder message = new StringBuilder();
-        // Заголовок всегда жирным (двойное подчёркивание, как для даты)
-        String escapedLotType = "__" + escapeMarkdownV2(lotType) + "__";
-        message.append(escapedLotType).append("\n\n");
-        String escapedTitle = escapeMarkdownV2(procurement.getTitle());
-        message.append(escapedTitle).append("\n\n");
-        if (procurement.getPrice() != null) {
-            String formattedPrice = DECIMAL_FORMAT.format(procurement.getPrice()).replace(".", "\\.");
-            message.append("💰").append(priceLabel).append(": ").append(formattedPrice).append(" ₽\n");
-        }
-        if (procurement.getMonthlyPrice() != null && priceLabel.contains("год")) {
-            String formattedMonthlyPrice = DECIMAL_FORMAT.format(procurement.getMonthlyPrice()).replace(".", "\\.");
-            message.append("💰Аренда в мес: ").append(formattedMonthlyPrice).append(" ₽\n");
+    private void handleSubscribe(long chatId, String args) {
+        SubscriptionRule rule = SubscriptionRule.parse(chatId, args);
+        if (rule == null) {
+            sendMessageWithRetry(chatId, "⛔ Формат: /subscribe [аренда|продажа|должники] [от N] [до N] [слова]\n"
+                    + "Например: /subscribe аренда до 50000 Балаклав");
+            return;
         }
-        if (procurement.getDeposit() != null) {
-            String formattedDeposit = DECIMAL_FORMAT.format(procurement.getDeposit()).replace(".", "\\.");
-            message.append("💰Задаток: ").append(formattedDeposit).append(" ₽\n");
+        if (Subscriptions.getInstance().subscribe(rule) < 0) {
+            sendMessageWithRetry(chatId, "❌ Не удалось сохранить подписку, попробуйте позже");
+            return;
         }
-        // --- Организатор торгов ---
-        boolean isDebtor = procurement.getBiddTypeName() != null && procurement.getBiddTypeName().toLowerCase().contains("реализация имущества должников");
-        if (!isDebtor && procurement.getDepositRecipientName() != null && !procurement.getDepositRecipientName().isEmpty()) {
-            String shortOrg = getShortOrgNameFull(procurement.getDepositRecipientName());
-            message.append("🏛Организатор торгов: ").append(escapeMarkdownV2(shortOrg)).append("\n");
+        sendMessageWithRetry(chatId, "✅ Подписка " + rule.describe());
+    }
+
+    private void handleSubscriptions(long chatId) {
+        List<SubscriptionRule> rules = Subscriptions.getInstance().list(chatId);
+        if (rules.isEmpty()) {
+            sendMessageWithRetry(chatId, "Подписок нет. Формат: /subscribe [аренда|продажа|должники] [от N] [до N] [слова]");
+            return;
         }
-        // --- Статичный адрес ---
-        message.append("🧭г Севастополь\n");
-        if (procurement.getContractTerm() != null) {
-            String escapedContractTerm = escapeMarkdownV2(procurement.getContractTerm());
-            message.append("📅Срок договора (лет): ").append(escapedContractTerm).append("\n");
+        StringBuilder text = new StringBuilder("Ваши подписки:");
+        for (SubscriptionRule rule : rules) {
+            text.append('\n').append(rule.describe());
         }
-        if (procurement.getDeadline() != null) {
-            String formattedDeadline = procurement.getDeadline();
+        sendMessageWithRetry(chatId, text.toString());
+    }
+
+    private void handleUnsubscribe(long chatId, String arg) {
+        Long ruleId = null;
+        if (!arg.isEmpty()) {
             try {
-                java.time.OffsetDateTime odt = java.time.OffsetDateTime.parse(procurement.getDeadline());
-                formattedDeadline = odt.format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy"));
-            } catch (Exception ignore) {}
-            String escapedDeadline = escapeMarkdownV2(formattedDeadline);
-            message.append("⏰Подача до: __").append(escapedDeadline).append("__\n\n");
+                ruleId = Long.parseLong(arg.replace("#", ""));
+            } catch (NumberFormatException e) {
+                sendMessageWithRetry(chatId, "⛔ Формат: /unsubscribe [номер]");
+                return;
+            }
+        }
+        int removed = Subscriptions.getInstance().unsubscribe(chatId, ruleId);
+        sendMessageWithRetry(chatId, removed > 0 ? "✅ Удалено подписок: " + removed : "⛔ Подписка не найдена");
+    }
+
+    // Выполняется в фоновом исполнителе и сообщает админу о каждом этапе
+    private void runManualParse(long chatId) {
+        ProcurementPipeline.Result result = RunCoordinator.getInstance().runExclusive("manual",
+                stage -> sendMessageWithRetry(chatId, stage),
+                progress -> {
+                    progress.accept("🚀 Запускаю парсинг...");
+                    return new ProcurementPipeline(this).run(chatId, progress);
+                });
+        if (result == null) {
+            // Пока команда ждала в очереди, начался проход по расписанию
+            RunCoordinator.ActiveRun active = RunCoordinator.getInstance().current();
+            if (active != null) {
+                followRun(chatId, active);
+            } else {
+                sendMessageWithRetry(chatId, "⏳ Парсинг только что выполнялся, попробуйте ещё раз");
+            }
+            return;
         }
-        message.append("Заинтересовал лот? [Пиши](https://t.me/").append(getBotUsername()).append("?start=lot_").append(procurement.getNumber()).append(") или звони 88007078692");
+        sendMessageWithRetry(chatId, "✅ Парсинг завершён, в очередь отправки поставлено " + result.getQueued() + " лотов");
+        logger.info("Manual parse completed: {}", result);
+    }
+
+    // Второй проход не запускается: админ получает этапы и итог уже идущего
+    private void followRun(long chatId, RunCoordinator.ActiveRun active) {
+        String started = new SimpleDateFormat("HH:mm").format(new Date(active.getStartedAt()));
+        String source = "schedule".equals(active.getTrigger()) ? "по расписанию" : "вручную";
+        String stage = active.getStage() != null ? ", последний этап: " + active.getStage() : "";
+        sendMessageWithRetry(chatId, "⏳ Парсинг уже выполняется (запущен " + source + " в " + started + stage
+                + "), пришлю итог по завершении");
+        active.follow(next -> sendMessageWithRetry(chatId, next));
+        active.getDone().whenComplete((result, error) -> {
+            if (error != null) {
+                sendMessageWithRetry(chatId, "❌ Парсинг завершился с ошибкой: " + error.getMessage());
+            } else {
+                sendMessageWithRetry(chatId, "✅ Парсинг завершён, в очередь отправки поставлено " + result.getQueued() + " лотов");
+            }
+        });
+        logger.info("Chat {} joined run {} in progress", chatId, active.getId());
+    }
+
+    public DeliveryQueue getDeliveryQueue() {
+        return deliveryQueue;
+    }
+
+    public void setDeliveryQueue(DeliveryQueue deliveryQueue) {
+        this.deliveryQueue = deliveryQueue;
+    }
+
+    /**
+     * Отправляет карточку лота и возвращает номера всех отправленных сообщений (у медиа-группы — каждой фотографии).
+     * Ошибки Telegram (в том числе 429) пробрасываются наверх, чтобы очередь отправки могла повторить попытку.
+     */
+    public List<Integer> deliverProcurement(long chatId, Procurement procurement) throws TelegramApiException {
+        String message = buildProcurementMessage(procurement);
         // --- Отправка фото и текста как медиа-группа ---
         if (procurement.getImageUrls() != null && !procurement.getImageUrls().isEmpty()) {
             int maxImages = Math.min(4, procurement.getImageUrls().size());
             List<String> urls = procurement.getImageUrls().subList(0, maxImages);
             try {
-                if (urls.size() == 1) {
-                    String url = urls.get(0);
-                    logger.info("IMAGE_URL for procurement {}: {} (downloading)", procurement.getNumber(), url);
-                    InputStream in = downloadImage(url);
-                    if (in != null) {
-                        InputFile inputFile = new InputFile(in, "image.jpg");
-                        SendPhoto photo = new SendPhoto();
-                        photo.setChatId(chatId);
-                        photo.setPhoto(inputFile);
-                        photo.setCaption(message.toString());
-                        photo.setParseMode("MarkdownV2");
-                        executeWithRetry(photo);
-                        in.close();
-                        logger.info("Sent 1 image for procurement: {} (downloaded)", procurement.getNumber());
+                List<Integer> messageIds = sendPhotos(chatId, message, urls, procurement.getNumber());
+                if (!messageIds.isEmpty()) {
+                    return messageIds;
+                }
+                logger.warn("No images could be downloaded for procurement: {}", procurement.getNumber());
+            } catch (TelegramApiRequestException e) {
+                if (isRetryable(e)) {
+                    throw e;
+                }
+                logger.error("Failed to send images for procurement {}: {}", procurement.getNumber(), e.getMessage());
+            }
+        }
+        return Collections.singletonList(sendTextFallback(chatId, message, procurement.getNumber()));
+    }
+
+    /**
+     * Отправляет картинки с подписью: одну через SendPhoto, несколько медиа-группой.
+     * Уже загруженные в Telegram картинки передаются по file_id, остальные берутся из кэша на диске.
+     * Возвращает номера отправленных сообщений; пустой список, если не нашлось ни одной картинки.
+     */
+    private List<Integer> sendPhotos(long chatId, String caption, List<String> urls, String procurementNumber) throws TelegramApiException {
+        ImageCache cache = ImageCache.getInstance();
+        List<String> keys = new ArrayList<>();
+        List<String> fileIds = new ArrayList<>();
+        List<File> files = new ArrayList<>();
+        boolean reused = false;
+        for (String url : urls) {
+            String key = ImageCache.keyOf(url);
+            String fileId = cache.getTelegramFileId(key);
+            File file = null;
+            if (fileId == null) {
+                logger.debug("IMAGE_URL for procurement {}: {}", procurementNumber, url);
+                file = cache.get(url);
+                if (file == null) {
+                    logger.warn("Failed to download image {} for procurement: {}", url, procurementNumber);
+                    continue;
+                }
+            } else {
+                reused = true;
+            }
+            keys.add(key);
+            fileIds.add(fileId);
+            files.add(file);
+        }
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Integer> messageIds = new ArrayList<>();
+        try {
+            if (keys.size() == 1) {
+                SendPhoto photo = new SendPhoto();
+                photo.setChatId(chatId);
+                photo.setPhoto(fileIds.get(0) != null ? new InputFile(fileIds.get(0)) : new InputFile(files.get(0), "image.jpg"));
+                photo.setCaption(caption);
+                photo.setParseMode("MarkdownV2");
+                Message sent = execute(photo);
+                rememberFileId(keys.get(0), sent);
+                messageIds.add(sent.getMessageId());
+            } else {
+                List<InputMedia> media = new ArrayList<>();
+                for (int i = 0; i < keys.size(); i++) {
+                    InputMediaPhoto photo = new InputMediaPhoto();
+                    if (fileIds.get(i) != null) {
+                        photo.setMedia(fileIds.get(i));
                     } else {
-                        logger.warn("Failed to download image for procurement: {}", procurement.getNumber());
-                        sendTextFallback(chatId, message.toString(), procurement.getNumber());
+                        photo.setMedia(files.get(i), "image" + i + ".jpg");
                     }
-                } else {
-                    List<InputMedia> media = new ArrayList<>();
-                    List<InputStream> streams = new ArrayList<>();
-                    for (int i = 0; i < urls.size(); i++) {
-                        String url = urls.get(i);
-                        logger.info("IMAGE_URL for procurement {}: {} (downloading)", procurement.getNumber(), url);
-                        InputStream in = downloadImage(url);
-                        if (in != null) {
-                            InputMediaPhoto photo = new InputMediaPhoto();
-                            photo.setMedia(in, "image" + i + ".jpg");
-                            if (i == 0) {
-                                photo.setCaption(message.toString());
-                                photo.setParseMode("MarkdownV2");
-                            }
-                            media.add(photo);
-                            streams.add(in);
-                        } else {
-                            logger.warn("Failed to download image {} for procurement: {}", i, procurement.getNumber());
-                        }
+                    if (i == 0) {
+                        photo.setCaption(caption);
+                        photo.setParseMode("MarkdownV2");
                     }
-                    if (!media.isEmpty()) {
-                        SendMediaGroup mediaGroup = new SendMediaGroup();
-                        mediaGroup.setChatId(chatId);
-                        mediaGroup.setMedias(media);
-                        executeWithRetry(mediaGroup);
-                        logger.info("Sent {} images for procurement: {} (downloaded)", media.size(), procurement.getNumber());
-                    } else {
-                        logger.warn("No images could be downloaded for procurement: {}", procurement.getNumber());
-                        sendTextFallback(chatId, message.toString(), procurement.getNumber());
+                    media.add(photo);
+                }
+                SendMediaGroup mediaGroup = new SendMediaGroup();
+                mediaGroup.setChatId(chatId);
+                mediaGroup.setMedias(media);
+                List<Message> sent = execute(mediaGroup);
+                for (int i = 0; i < sent.size(); i++) {
+                    messageIds.add(sent.get(i).getMessageId());
+                    if (i < keys.size()) {
+                        rememberFileId(keys.get(i), sent.get(i));
                     }
-                    // Закрываем все потоки
-                    for (InputStream s : streams) try { s.close(); } catch (Exception ignore) {}
                 }
-            } catch (Exception e) {
-                logger.error("Failed to download/send images for procurement {}: {}", procurement.getNumber(), e.getMessage());
-                sendTextFallback(chatId, message.toString(), procurement.getNumber());
             }
-        } else {
-            sendTextFallback(chatId, message.toString(), procurement.getNumber());
+        } catch (TelegramApiRequestException e) {
+            if (!reused || !isFileIdRejected(e)) {
+                throw e;
+            }
+            // Telegram мог забыть старый file_id — загружаем картинки заново
+            logger.warn("Cached Telegram file ids rejected for procurement {}: {}, re-uploading", procurementNumber, e.getMessage());
+            keys.forEach(cache::forgetTelegramFileId);
+            return sendPhotos(chatId, caption, urls, procurementNumber);
         }
+        logger.info("Sent {} images for procurement: {} ({})", keys.size(), procurementNumber, reused ? "reused file ids" : "uploaded");
+        return messageIds;
+    }
+
+    private void rememberFileId(String key, Message message) {
+        if (message != null && message.getPhoto() != null && !message.getPhoto().isEmpty()) {
+            // Последний размер в списке — самый большой
+            List<PhotoSize> sizes = message.getPhoto();
+            ImageCache.getInstance().rememberTelegramFileId(key, sizes.get(sizes.size() - 1).getFileId());
+        }
+    }
+
+    /**
+     * Текст карточки лота в разметке MarkdownV2 по действующему шаблону (см. {@link MessageTemplates}).
+     */
+    static String buildProcurementMessage(Procurement procurement) {
+        return MessageTemplates.getInstance().procurement().render(procurement);
     }
 
     private void handleUserQuestion(Update update, List<String> adminIds) {
         long chatId = update.getMessage().getChatId();
         int replyToMessageId = update.getMessage().getReplyToMessage().getMessageId();
         String userMessage = update.getMessage().getText();
-        DatabaseManager db = new DatabaseManager();
-        String procurementNumber = db.getProcurementNumberByMessageId(replyToMessageId, chatId);
+        String procurementNumber = MessageMappingCache.getInstance().find(replyToMessageId, chatId);
 
         if (procurementNumber != null) {
             String forwardMessage = String.format("Вопрос от пользователя %s по лоту %s:\n%s", chatId, procurementNumber, userMessage);
@@ -260,11 +365,21 @@ public class TelegramBot extends TelegramLongPollingBot {
         }
     }
 
+    /**
+     * Ссылка на лот по пересланной карточке. Пересылка из канала несёт исходный чат и номер сообщения —
+     * по ним лот находится в message_mappings. У пересылки из личного чата с ботом их нет,
+     * тогда номер лота берётся из ссылки «Пиши» (…?start=lot_<номер>) в тексте карточки.
+     */
     private void handleForwardedLot(Update update) {
-        long chatId = update.getMessage().getChatId();
-        int forwardedMessageId = update.getMessage().getMessageId();
-        DatabaseManager db = new DatabaseManager();
-        String procurementNumber = db.getProcurementNumberByMessageId(forwardedMessageId, chatId);
+        Message message = update.getMessage();
+        long chatId = message.getChatId();
+        String procurementNumber = null;
+        if (message.getForwardFromChat() != null && message.getForwardFromMessageId() != null) {
+            procurementNumber = MessageMappingCache.getInstance().find(message.getForwardFromMessageId(), message.getForwardFromChat().getId());
+        }
+        if (procurementNumber == null) {
+            procurementNumber = lotNumberFromLink(message);
+        }
 
         if (procurementNumber != null) {
             String lotUrl = "https://torgi.gov.ru/new/public/lots/lot/" + procurementNumber + "/(lotInfo:info)?fromRec=false";
@@ -272,59 +387,105 @@ public class TelegramBot extends TelegramLongPollingBot {
             logger.info("Sent lot URL {} for forwarded message from chat ID: {}", lotUrl, chatId);
         } else {
             sendMessageWithRetry(chatId, "⛔ Лот не найден");
-            logger.warn("No procurement found for forwarded message ID {} from chat ID: {}", forwardedMessageId, chatId);
+            logger.warn("No procurement found for forwarded message {} from chat {} (forwarded to chat ID: {})",
+                    message.getForwardFromMessageId(), message.getForwardFromChat() != null ? message.getForwardFromChat().getId() : null, chatId);
         }
     }
 
+    private static String lotNumberFromLink(Message message) {
+        for (List<MessageEntity> entities : Arrays.asList(message.getEntities(), message.getCaptionEntities())) {
+            if (entities == null) {
+                continue;
+            }
+            for (MessageEntity entity : entities) {
+                String url = entity.getUrl();
+                int start = url != null ? url.indexOf(LOT_START_PARAM) : -1;
+                if (start >= 0) {
+                    return url.substring(start + LOT_START_PARAM.length());
+                }
+            }
+        }
+        return null;
+    }
+
     public void sendMessageWithRetry(long chatId, String text) {
         SendMessage message = new SendMessage();
         message.setChatId(chatId);
         String escapedText = escapeMarkdownV2(text);
         message.setText(escapedText);
         message.setParseMode("MarkdownV2");
-        executeWithRetry(message);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                execute(message);
+                return;
+            } catch (TelegramApiRequestException e) {
+                if (Integer.valueOf(429).equals(e.getErrorCode())) {
+                    AppMetrics.registry().counter("telegram.rate_limited", "source", "message").increment();
+                }
+                if (!isRetryable(e) || attempt >= MAX_SEND_ATTEMPTS) {
+                    logger.error("Failed to send message to {}: {}", chatId, e.getMessage());
+                    return;
+                }
+                Integer retryAfter = retryAfter(e);
+                sleepBeforeRetry(retryAfter != null ? retryAfter * 1000L : attempt * 1000L);
+            } catch (TelegramApiException e) {
+                if (attempt >= MAX_SEND_ATTEMPTS) {
+                    logger.error("Failed to send message to {}: {}", chatId, e.getMessage());
+                    return;
+                }
+                sleepBeforeRetry(attempt * 1000L);
+            }
+        }
     }
 
-    private Integer executeWithRetry(Object method) {
-        try {
-            if (method instanceof SendMessage) {
-                return execute((SendMessage) method).getMessageId();
-            } else if (method instanceof SendMediaGroup) {
-                execute((SendMediaGroup) method);
-                return null;
-            } else if (method instanceof SendPhoto) {
-                return execute((SendPhoto) method).getMessageId();
+    /**
+     * Имеет ли смысл повторять запрос: 429 (слишком часто) и ошибки на стороне Telegram.
+     */
+    static boolean isRetryable(TelegramApiRequestException e) {
+        Integer code = e.getErrorCode();
+        return code == null || code == 429 || code >= 500;
+    }
+
+    /**
+     * Отклонил ли Telegram сам file_id (файл забыт или недоступен), а не, например, разметку подписи.
+     */
+    static boolean isFileIdRejected(TelegramApiRequestException e) {
+        if (e.getErrorCode() == null || e.getErrorCode() != 400 || e.getApiResponse() == null) {
+            return false;
+        }
+        String response = e.getApiResponse().toLowerCase(Locale.ROOT);
+        for (String marker : FILE_ID_ERRORS) {
+            if (response.contains(marker)) {
+                return true;
             }
-        } catch (TelegramApiException e) {
-            logger.error("Failed to execute method: {}", e.getMessage());
         }
-        return null;
+        return false;
+    }
+
+    /**
+     * retry_after из ответа Telegram в секундах или null.
+     */
+    static Integer retryAfter(TelegramApiRequestException e) {
+        return e.getParameters() != null ? e.getParameters().getRetryAfter() : null;
     }
 
-    private String escapeMarkdownV2(String text) {
+    private static void sleepBeforeRetry(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static String escapeMarkdownV2(String text) {
         if (text == null) return "";
-        return text.replace("_", "\\_")
-                .replace("*", "\\*")
-                .replace("[", "\\[")
-                .replace("]", "\\]")
-                .replace("(", "\\(")
-                .replace(")", "\\)")
-                .replace("~", "\\~")
-                .replace("`", "\\`")
-                .replace(">", "\\>")
-                .replace("#", "\\#")
-                .replace("+", "\\+")
-                .replace("-", "\\-")
-                .replace("=", "\\=")
-                .replace("|", "\\|")
-                .replace("{", "\\{")
-                .replace("}", "\\}")
-                .replace(".", "\\.")
-                .replace("!", "\\!");
+        int reserved = MessageTemplate.countReserved(text);
+        if (reserved == 0) return text;
+        return MessageTemplate.escapeMarkdownV2(text, reserved);
     }
 
     // Сокращение названия организатора по первым буквам каждого слова (кроме служебных)
-    private String getShortOrgName(String fullName) {
+    private static String getShortOrgName(String fullName) {
         String[] serviceWords = {"по", "и", "в", "на", "с", "к", "от", "до", "за", "из", "у", "о", "об", "а", "но", "для", "при", "без", "над", "под", "про", "через", "после", "между", "надо", "через", "либо", "или", "то", "же", "бы", "же", "да", "ли", "быть", "этот", "тот", "такой", "так", "же", "как", "что", "чтобы", "который", "свой", "наш", "ваш", "их", "её", "его", "её", "их"};
         java.util.Set<String> serviceSet = new java.util.HashSet<>();
         for (String w : serviceWords) serviceSet.add(w.toLowerCase());
@@ -347,7 +508,7 @@ public class TelegramBot extends TelegramLongPollingBot {
     }
 
     // Новый метод для сокращения с кавычками и пробелом
-    private String getShortOrgNameFull(String fullName) {
+    static String getShortOrgNameFull(String fullName) {
         String upper = fullName.toUpperCase();
         if (upper.contains("ГУП")) {
             String core = extractCoreName(fullName);
@@ -370,7 +531,7 @@ public class TelegramBot extends TelegramLongPollingBot {
     }
 
     // Вспомогательный метод для извлечения "ядра" названия
-    private String extractCoreName(String fullName) {
+    private static String extractCoreName(String fullName) {
         String[] words = fullName.replaceAll("[\"«»]", "").split("[\s,]+");
         StringBuilder sb = new StringBuilder();
         for (String word : words) {
@@ -383,26 +544,13 @@ public class TelegramBot extends TelegramLongPollingBot {
         return sb.length() > 0 ? sb.toString() : fullName;
     }
 
-    private InputStream downloadImage(String imageUrl) {
-        try {
-            URL url = new URL(imageUrl);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestProperty("User-Agent", "Mozilla/5.0");
-            conn.setConnectTimeout(10000);
-            conn.setReadTimeout(10000);
-            return conn.getInputStream();
-        } catch (Exception e) {
-            logger.warn("Failed to download image from {}: {}", imageUrl, e.getMessage());
-            return null;
-        }
-    }
-
-    private void sendTextFallback(long chatId, String text, String procurementNumber) {
+    private int sendTextFallback(long chatId, String text, String procurementNumber) throws TelegramApiException {
         SendMessage sendMessage = new SendMessage();
         sendMessage.setChatId(chatId);
         sendMessage.setText(text);
         sendMessage.setParseMode("MarkdownV2");
-        executeWithRetry(sendMessage);
+        Message sent = execute(sendMessage);
         logger.warn("Fallback: sent only text for procurement: {}", procurementNumber);
+        return sent.getMessageId();
     }
 }
\ No newline at end of file
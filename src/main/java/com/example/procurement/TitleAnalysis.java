@@ -0,0 +1,22 @@
+package com.example.procurement;
+
+import lombok.Data;
+
+import java.util.BitSet;
+
+/**
+ * Результат разбора заголовка лота из RSS. Поля заполняет {@link TitleAnalyzer}, решение фильтра — {@link LotFilter}.
+ */
+@Data
+public class TitleAnalysis {
+    private BitSet keywordHits; // Индексы найденных ключевых слов фильтра
+    private String rule; // Сработавшее правило фильтра
+    private boolean realEstate;
+    private String lotType;
+    private String address;
+    private Double monthlyPrice;
+    private Double deposit;
+    private String contractTerm;
+    private String cadastralNumber;
+    private Double area;
+}
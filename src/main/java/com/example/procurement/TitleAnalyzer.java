@@ -0,0 +1,197 @@
+package com.example.procurement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Разбор заголовка лота за один проход: поиск ключевых слов фильтра и извлечение полей.
+ * Ключевые слова, признаки аренды и опорные слова полей («площадью», «залог», «руб» и т.д.)
+ * ищутся одним автоматом {@link KeywordMatcher}. Заранее скомпилированное выражение поля
+ * проверяется только в месте, где нашлось его опорное слово, и только пока поле не заполнено.
+ * Безопасен для использования из разных потоков.
+ */
+public class TitleAnalyzer {
+    private static final Logger logger = LoggerFactory.getLogger(TitleAnalyzer.class);
+    static final String RENT_LOT_TYPE = "Аукцион на право заключения договора аренды на недвижимое имущество";
+    static final String UNKNOWN_LOT_TYPE = "Неизвестный тип";
+    static final String DEFAULT_ADDRESS = "г. Севастополь";
+    private static final List<String> RENT_MARKERS = List.of(
+            "аренды", "нежилое помещение", "нежилые помещения", "нежилое здание");
+
+    private enum Field {
+        // Кадастровый номер опирается на первое двоеточие: оно стоит через две цифры от начала номера
+        CADASTRAL(":", "\\d{2}:\\d{2}:\\d{6,7}:\\d+", 0),
+        AREA("площадью", "площадью\\s*([\\d,.]+)\\s*кв\\.?\\s*м", 1),
+        ADDRESS("по адресу:", "по адресу:([^,]+)", 1),
+        // Месячная цена опирается на «руб», начало числа ищется назад от него
+        MONTHLY("руб", "(\\d+[,.]\\d+)\\s*руб\\.?/мес", 1),
+        DEPOSIT("залог", "залог\\s*(\\d+[,.]\\d+)", 1),
+        TERM("срок", "срок\\s*(?:контракта|аренды)[^\\d]*(\\d+\\s*(?:год|лет|месяц))", 1);
+
+        private final String anchor;
+        private final Pattern pattern;
+        private final int group;
+
+        Field(String anchor, String regex, int group) {
+            this.anchor = anchor;
+            this.pattern = Pattern.compile(regex);
+            this.group = group;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+
+    private final KeywordMatcher keywords;
+    private final int keywordEnd;
+    private final int rentEnd;
+
+    /**
+     * @param filterKeywords ключевые слова фильтра; в {@link TitleAnalysis#getKeywordHits()} попадают их индексы в этом списке
+     */
+    public TitleAnalyzer(List<String> filterKeywords) {
+        List<String> all = new ArrayList<>(filterKeywords.size() + RENT_MARKERS.size() + FIELDS.length);
+        all.addAll(filterKeywords);
+        all.addAll(RENT_MARKERS);
+        for (Field field : FIELDS) {
+            all.add(field.anchor);
+        }
+        this.keywords = new KeywordMatcher(all);
+        this.keywordEnd = filterKeywords.size();
+        this.rentEnd = keywordEnd + RENT_MARKERS.size();
+    }
+
+    public TitleAnalysis analyze(String title) {
+        Scan scan = new Scan(title);
+        keywords.scan(title, scan);
+        TitleAnalysis analysis = scan.analysis;
+        analysis.setKeywordHits(scan.hits);
+        analysis.setLotType(scan.rent ? RENT_LOT_TYPE : UNKNOWN_LOT_TYPE);
+        if (analysis.getAddress() == null) {
+            analysis.setAddress(DEFAULT_ADDRESS);
+        }
+        return analysis;
+    }
+
+    private final class Scan implements KeywordMatcher.MatchListener {
+        private final String title;
+        private final TitleAnalysis analysis = new TitleAnalysis();
+        private final boolean[] found = new boolean[FIELDS.length];
+        private final BitSet hits = new BitSet(keywordEnd);
+        private Matcher matcher;
+        private boolean rent;
+
+        Scan(String title) {
+            this.title = title;
+        }
+
+        @Override
+        public boolean onMatch(int id, int end) {
+            if (id < keywordEnd) {
+                hits.set(id);
+            } else if (id < rentEnd) {
+                rent = true;
+            } else {
+                Field field = FIELDS[id - rentEnd];
+                if (!found[field.ordinal()]) {
+                    extract(field, end);
+                }
+            }
+            return true;
+        }
+
+        // Опорные слова приходят по порядку, поэтому первое подтверждённое вхождение поля — самое левое, как у Matcher.find
+        private void extract(Field field, int anchorEnd) {
+            int start = startOf(field, anchorEnd);
+            if (start < 0) {
+                return;
+            }
+            if (matcher == null) {
+                matcher = field.pattern.matcher(title);
+            } else {
+                matcher.usePattern(field.pattern);
+            }
+            matcher.region(start, title.length());
+            if (!matcher.lookingAt()) {
+                return;
+            }
+            found[field.ordinal()] = true;
+            String value = matcher.group(field.group);
+            switch (field) {
+                case CADASTRAL:
+                    analysis.setCadastralNumber(value);
+                    break;
+                case AREA:
+                    analysis.setArea(parseNumber(value, "area"));
+                    break;
+                case ADDRESS:
+                    analysis.setAddress(value.trim());
+                    break;
+                case MONTHLY:
+                    analysis.setMonthlyPrice(parseNumber(value, "monthly price"));
+                    break;
+                case DEPOSIT:
+                    analysis.setDeposit(parseNumber(value, "deposit"));
+                    break;
+                default:
+                    analysis.setContractTerm(value);
+                    break;
+            }
+        }
+
+        private int startOf(Field field, int anchorEnd) {
+            int anchorStart = anchorEnd - field.anchor.length();
+            switch (field) {
+                case CADASTRAL:
+                    return anchorStart - 2;
+                case MONTHLY:
+                    return numberStartBefore(anchorStart);
+                default:
+                    return anchorStart;
+            }
+        }
+
+        // Начало числа вида 123,45, за которым до позиции end идут только пробелы; -1, если такого нет
+        private int numberStartBefore(int end) {
+            int i = end;
+            while (i > 0 && isSpace(title.charAt(i - 1))) {
+                i--;
+            }
+            int fractionEnd = i;
+            while (i > 0 && isDigit(title.charAt(i - 1))) {
+                i--;
+            }
+            if (i == fractionEnd || i == 0 || (title.charAt(i - 1) != ',' && title.charAt(i - 1) != '.')) {
+                return -1;
+            }
+            int integerEnd = --i;
+            while (i > 0 && isDigit(title.charAt(i - 1))) {
+                i--;
+            }
+            return i == integerEnd ? -1 : i;
+        }
+    }
+
+    // Те же классы символов, что \d и \s в java.util.regex
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static Double parseNumber(String value, String field) {
+        try {
+            return Double.parseDouble(value.replace(",", "."));
+        } catch (NumberFormatException e) {
+            logger.warn("Failed to parse {}: {}", field, value);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.procurement;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маркерная корзина: не больше ratePerSecond разрешений в секунду в среднем
+ * и не больше burst подряд. Разрешения резервируются заранее, поэтому ожидающие
+ * потоки выстраиваются в очередь без активного ожидания.
+ */
+public class TokenBucket {
+    private final double ratePerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        if (!(ratePerSecond > 0) || Double.isInfinite(ratePerSecond)) {
+            throw new IllegalArgumentException("Token bucket rate must be a positive number: " + ratePerSecond);
+        }
+        this.ratePerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Забирает одно разрешение и возвращает, сколько наносекунд нужно подождать до его наступления.
+     */
+    public synchronized long reserve() {
+        refill();
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) (-tokens / ratePerNano);
+    }
+
+    public synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    public double getRatePerSecond() {
+        return ratePerNano * TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+        lastRefill = now;
+    }
+}
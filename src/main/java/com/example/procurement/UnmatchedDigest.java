@@ -0,0 +1,55 @@
+package com.example.procurement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Лоты без совпадения с правилами фильтра, накопленные за один проход парсинга.
+ * Парсер только добавляет их сюда, в сеть ничего не отправляется; сводка уходит одним сообщением в конце прохода.
+ */
+public class UnmatchedDigest {
+    // Сообщение Telegram ограничено 4096 символами; длина считается после экранирования MarkdownV2 при отправке
+    private static final int MAX_MESSAGE_LENGTH = 4096;
+
+    private final List<UnmatchedLot> lots = new ArrayList<>();
+
+    public synchronized void add(UnmatchedLot lot) {
+        lots.add(lot);
+    }
+
+    /**
+     * Забирает накопленные лоты и очищает сводку.
+     */
+    public synchronized List<UnmatchedLot> drain() {
+        List<UnmatchedLot> drained = new ArrayList<>(lots);
+        lots.clear();
+        return drained;
+    }
+
+    /**
+     * Текст сводки: номер и заголовок каждого лота; то, что не помещается в одно сообщение, сокращается до счётчика.
+     */
+    public static String format(List<UnmatchedLot> lots) {
+        StringBuilder message = new StringBuilder("🔍 Лоты без совпадения с правилами фильтра: ").append(lots.size()).append("\n");
+        int escapedLength = escapedLength(message);
+        for (int i = 0; i < lots.size(); i++) {
+            UnmatchedLot lot = lots.get(i);
+            String line = "\n" + lot.getNumber() + " — " + lot.getTitle();
+            String more = "\n… и ещё " + (lots.size() - i);
+            // Последней строке не нужно место под счётчик оставшихся
+            int reserve = i < lots.size() - 1 ? escapedLength("\n… и ещё " + (lots.size() - i - 1)) : 0;
+            if (escapedLength + escapedLength(line) + reserve > MAX_MESSAGE_LENGTH) {
+                message.append(more);
+                break;
+            }
+            message.append(line);
+            escapedLength += escapedLength(line);
+        }
+        return message.toString();
+    }
+
+    // Длина текста после экранирования MarkdownV2 (каждый служебный символ получает обратную косую черту)
+    private static int escapedLength(CharSequence text) {
+        return text.length() + MessageTemplate.countReserved(text);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.procurement;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Лот из RSS, который не подошёл ни под одно правило фильтра. Хранится в unmatched_lots для разбора правил.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnmatchedLot {
+    private String number; // Номер лота или ссылка, если номер не удалось извлечь
+    private String title;
+    private String link;
+}
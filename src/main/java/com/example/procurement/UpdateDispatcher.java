@@ -0,0 +1,81 @@
+package com.example.procurement;
+
+import io.micrometer.core.instrument.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обработка входящих обновлений вне потока long polling.
+ * Чат всегда попадает в один и тот же однопоточный исполнитель, поэтому сообщения
+ * одного чата обрабатываются по порядку, а разные чаты — параллельно.
+ * Долгие команды выполняются отдельно, в фоновом исполнителе.
+ */
+public class UpdateDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(UpdateDispatcher.class);
+
+    private final ThreadPoolExecutor[] stripes;
+    private final ThreadPoolExecutor background;
+
+    public UpdateDispatcher(int workers, int queueSize) {
+        stripes = new ThreadPoolExecutor[Math.max(1, workers)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = newExecutor("update-worker-" + i, queueSize);
+        }
+        background = newExecutor("background-task", queueSize);
+        Gauge.builder("updates.background.backlog", this, UpdateDispatcher::backgroundBacklog).register(AppMetrics.registry());
+    }
+
+    /**
+     * Ставит обработку обновления в очередь чата. При переполнении очереди обновление отбрасывается.
+     */
+    public void submit(long chatId, Runnable task) {
+        ExecutorService stripe = stripes[Math.floorMod(Long.hashCode(chatId), stripes.length)];
+        try {
+            stripe.execute(() -> runSafely(task));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Update queue is full, dropping update from chat {}", chatId);
+        }
+    }
+
+    /**
+     * Запускает долгую задачу в фоне. Возвращает false, если очередь фоновых задач переполнена.
+     */
+    public boolean submitBackground(Runnable task) {
+        try {
+            background.execute(() -> runSafely(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            logger.warn("Background task queue is full");
+            return false;
+        }
+    }
+
+    /**
+     * Фоновые задачи в очереди и в работе (метрика updates.background.backlog).
+     */
+    public int backgroundBacklog() {
+        return background.getQueue().size() + background.getActiveCount();
+    }
+
+    private static void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            logger.error("Error handling update: {}", e.getMessage(), e);
+        }
+    }
+
+    private static ThreadPoolExecutor newExecutor(String name, int queueSize) {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)), r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}